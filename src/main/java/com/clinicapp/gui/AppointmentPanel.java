@@ -4,6 +4,7 @@ import com.clinicapp.io.CsvExporter;
 import com.clinicapp.io.CsvImporter;
 import com.clinicapp.model.Appointment;
 import com.clinicapp.model.Appointment.AppointmentStatus;
+import com.clinicapp.model.DateTimeCodec;
 import com.clinicapp.model.Doctor;
 import com.clinicapp.model.Patient;
 import com.clinicapp.service.AppointmentManager;
@@ -15,11 +16,11 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.io.File;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class AppointmentPanel extends JPanel {
     private AppointmentManager appointmentManager;
@@ -27,6 +28,11 @@ public class AppointmentPanel extends JPanel {
     private DoctorManager doctorManager;
     private JTable appointmentTable;
     private DefaultTableModel tableModel;
+    private JPanel buttonPanel;
+    private ProgressPanel progressPanel;
+    
+    // ID of the last appointment in the table; later appointments are appended by appendNewRows
+    private int lastShownId;
     
     public AppointmentPanel(AppointmentManager appointmentManager, 
                           PatientManager patientManager, 
@@ -53,7 +59,8 @@ public class AppointmentPanel extends JPanel {
         appointmentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(appointmentTable);
         
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        progressPanel = new ProgressPanel();
         
         JButton scheduleButton = new JButton("Schedule Appointment");
         JButton viewButton = new JButton("View Details");
@@ -85,27 +92,38 @@ public class AppointmentPanel extends JPanel {
         buttonPanel.add(importButton);
         buttonPanel.add(refreshButton);
         
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(progressPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        
         add(scrollPane, BorderLayout.CENTER);
-        add(buttonPanel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
     }
     
     private void refreshTable() {
         tableModel.setRowCount(0);
-        List<Appointment> appointments = appointmentManager.getAllAppointments();
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-        
-        for (Appointment apt : appointments) {
+        lastShownId = 0;
+        appendNewRows();
+    }
+    
+    /**
+     * Append the appointments added since the table was last filled, e.g. by
+     * an import batch that has just been applied.
+     */
+    private void appendNewRows() {
+        for (Appointment apt : appointmentManager.getAppointmentsAfter(lastShownId, Integer.MAX_VALUE)) {
             Object[] row = {
                 apt.getId(),
                 apt.getAppointmentDate(),
-                apt.getStartTime().format(timeFormatter),
-                apt.getEndTime().format(timeFormatter),
+                DateTimeCodec.formatTime(apt.getStartTime()),
+                DateTimeCodec.formatTime(apt.getEndTime()),
                 apt.getPatient().getName(),
                 "Dr. " + apt.getDoctor().getName(),
                 apt.getReason(),
                 apt.getStatus()
             };
             tableModel.addRow(row);
+            lastShownId = apt.getId();
         }
     }
     
@@ -210,7 +228,7 @@ public class AppointmentPanel extends JPanel {
                 refreshTable();
                 dialog.dispose();
             } else {
-                JOptionPane.showMessageDialog(dialog, "Failed to schedule appointment. Doctor may have a conflict.", "Error", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(dialog, "Failed to schedule appointment. Doctor may be off duty or have a conflict.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
         
@@ -235,13 +253,12 @@ public class AppointmentPanel extends JPanel {
         Appointment appointment = appointmentManager.getAppointmentById(appointmentId);
         
         if (appointment != null) {
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
             String details = String.format(
                 "ID: %d\nDate: %s\nTime: %s - %s\nPatient: %s (ID: %d)\nDoctor: Dr. %s (ID: %d)\nSpecialization: %s\nReason: %s\nStatus: %s\nNotes: %s",
                 appointment.getId(),
-                appointment.getAppointmentDate(),
-                appointment.getStartTime().format(timeFormatter),
-                appointment.getEndTime().format(timeFormatter),
+                DateTimeCodec.formatDate(appointment.getAppointmentDate()),
+                DateTimeCodec.formatTime(appointment.getStartTime()),
+                DateTimeCodec.formatTime(appointment.getEndTime()),
                 appointment.getPatient().getName(),
                 appointment.getPatient().getId(),
                 appointment.getDoctor().getName(),
@@ -272,11 +289,9 @@ public class AppointmentPanel extends JPanel {
         dialog.setSize(500, 300);
         dialog.setLocationRelativeTo(this);
         
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-        
-        JTextField dateField = new JTextField(appointment.getAppointmentDate().toString());
-        JTextField startTimeField = new JTextField(appointment.getStartTime().format(timeFormatter));
-        JTextField endTimeField = new JTextField(appointment.getEndTime().format(timeFormatter));
+        JTextField dateField = new JTextField(DateTimeCodec.formatDate(appointment.getAppointmentDate()));
+        JTextField startTimeField = new JTextField(DateTimeCodec.formatTime(appointment.getStartTime()));
+        JTextField endTimeField = new JTextField(DateTimeCodec.formatTime(appointment.getEndTime()));
         JTextField reasonField = new JTextField(appointment.getReason());
         JTextArea notesArea = new JTextArea(appointment.getNotes() != null ? appointment.getNotes() : "");
         notesArea.setLineWrap(true);
@@ -407,56 +422,99 @@ public class AppointmentPanel extends JPanel {
     }
     
     private void exportAppointments() {
-        List<Appointment> appointments = appointmentManager.getAllAppointments();
-        if (appointments.isEmpty()) {
+        if (appointmentManager.getAppointmentCount() == 0) {
             JOptionPane.showMessageDialog(this, "No appointments to export", "Info", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
         
-        try {
-            String fileName = CsvExporter.exportAppointments(appointments);
-            JOptionPane.showMessageDialog(this, 
-                "Appointments exported successfully!\nFile: " + fileName, 
-                "Export Success", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Failed to export appointments: " + e.getMessage(), 
-                "Export Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        // Snapshot the appointments here on the EDT; the worker only reads the list
+        List<Appointment> appointments = appointmentManager.getAllAppointments();
+        progressPanel.start("Exporting appointments", buttonPanel);
+        
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return CsvExporter.exportAppointments(appointments, progressPanel);
+            }
+            
+            @Override
+            protected void done() {
+                progressPanel.finish();
+                try {
+                    String fileName = get();
+                    JOptionPane.showMessageDialog(AppointmentPanel.this, 
+                        "Appointments exported successfully!\nFile: " + fileName, 
+                        "Export Success", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        JOptionPane.showMessageDialog(AppointmentPanel.this, "Export cancelled", 
+                            "Export", JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(AppointmentPanel.this, 
+                        "Failed to export appointments: " + cause.getMessage(), 
+                        "Export Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
     
     private void importAppointments() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Select CSV file to import");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv", "gz"));
         
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
-            
-            CsvImporter.ImportResult importResult = CsvImporter.importAppointments(
-                selectedFile.getAbsolutePath(), appointmentManager, patientManager, doctorManager
-            );
+            String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+            progressPanel.start("Importing appointments", buttonPanel);
             
-            StringBuilder message = new StringBuilder();
-            message.append("Import completed!\n");
-            message.append("Success: ").append(importResult.successCount).append("\n");
-            message.append("Errors: ").append(importResult.errorCount).append("\n");
-            
-            if (!importResult.errors.isEmpty()) {
-                message.append("\nError details:\n");
-                for (String error : importResult.errors) {
-                    message.append("- ").append(error).append("\n");
+            new SwingWorker<CsvImporter.ImportResult, Void>() {
+                @Override
+                protected CsvImporter.ImportResult doInBackground() {
+                    // The file is parsed here; each batch is applied on the EDT and
+                    // its appointments are appended to the table as soon as it commits
+                    return CsvImporter.importAppointments(filePath, appointmentManager, patientManager, 
+                        doctorManager, ProgressPanel.IMPORT_BATCH_SIZE, progressPanel, 
+                        ProgressPanel.onEventThread(AppointmentPanel.this::appendNewRows));
                 }
-            }
-            
-            JOptionPane.showMessageDialog(this, message.toString(), 
-                "Import Results", 
-                importResult.errorCount > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
-            
-            refreshTable();
+                
+                @Override
+                protected void done() {
+                    progressPanel.finish();
+                    CsvImporter.ImportResult importResult;
+                    try {
+                        importResult = get();
+                    } catch (Exception e) {
+                        JOptionPane.showMessageDialog(AppointmentPanel.this, 
+                            "Failed to import appointments: " + e.getMessage(), 
+                            "Import Error", 
+                            JOptionPane.ERROR_MESSAGE);
+                        refreshTable();
+                        return;
+                    }
+                    
+                    StringBuilder message = new StringBuilder();
+                    message.append("Import completed!\n");
+                    message.append("Success: ").append(importResult.successCount).append("\n");
+                    message.append("Errors: ").append(importResult.errorCount).append("\n");
+                    
+                    if (!importResult.errors.isEmpty()) {
+                        message.append("\nError details:\n");
+                        for (String error : importResult.errors) {
+                            message.append("- ").append(error).append("\n");
+                        }
+                    }
+                    
+                    JOptionPane.showMessageDialog(AppointmentPanel.this, message.toString(), 
+                        "Import Results", 
+                        importResult.errorCount > 0 || !importResult.errors.isEmpty() 
+                            ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                }
+            }.execute();
         }
     }
 }
@@ -3,6 +3,9 @@ package com.clinicapp.gui;
 import com.clinicapp.io.CsvExporter;
 import com.clinicapp.io.CsvImporter;
 import com.clinicapp.model.Doctor;
+import com.clinicapp.model.ScheduleException;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.AppointmentManager.CascadeAction;
 import com.clinicapp.service.DoctorManager;
 import com.clinicapp.util.InputValidator;
 
@@ -10,16 +13,27 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class DoctorPanel extends JPanel {
     private DoctorManager doctorManager;
+    private AppointmentManager appointmentManager;
     private JTable doctorTable;
     private DefaultTableModel tableModel;
+    private JPanel buttonPanel;
+    private ProgressPanel progressPanel;
     
-    public DoctorPanel(DoctorManager doctorManager) {
+    // ID of the last doctor in the table; later doctors are appended by appendNewRows
+    private int lastShownId;
+    
+    public DoctorPanel(DoctorManager doctorManager, AppointmentManager appointmentManager) {
         this.doctorManager = doctorManager;
+        this.appointmentManager = appointmentManager;
         initializeUI();
         refreshTable();
     }
@@ -39,13 +53,15 @@ public class DoctorPanel extends JPanel {
         doctorTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(doctorTable);
         
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        progressPanel = new ProgressPanel();
         
         JButton addButton = new JButton("Add Doctor");
         JButton viewButton = new JButton("View Details");
         JButton updateButton = new JButton("Update Doctor");
         JButton deleteButton = new JButton("Delete Doctor");
         JButton toggleAvailButton = new JButton("Toggle Availability");
+        JButton leaveButton = new JButton("Schedule Leave");
         JButton exportButton = new JButton("Export to CSV");
         JButton importButton = new JButton("Import from CSV");
         JButton refreshButton = new JButton("Refresh");
@@ -55,6 +71,7 @@ public class DoctorPanel extends JPanel {
         updateButton.addActionListener(e -> showUpdateDoctorDialog());
         deleteButton.addActionListener(e -> deleteDoctor());
         toggleAvailButton.addActionListener(e -> toggleAvailability());
+        leaveButton.addActionListener(e -> showScheduleLeaveDialog());
         exportButton.addActionListener(e -> exportDoctors());
         importButton.addActionListener(e -> importDoctors());
         refreshButton.addActionListener(e -> refreshTable());
@@ -64,18 +81,31 @@ public class DoctorPanel extends JPanel {
         buttonPanel.add(updateButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(toggleAvailButton);
+        buttonPanel.add(leaveButton);
         buttonPanel.add(exportButton);
         buttonPanel.add(importButton);
         buttonPanel.add(refreshButton);
         
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(progressPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        
         add(scrollPane, BorderLayout.CENTER);
-        add(buttonPanel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
     }
     
     private void refreshTable() {
         tableModel.setRowCount(0);
-        List<Doctor> doctors = doctorManager.getAllDoctors();
-        for (Doctor doctor : doctors) {
+        lastShownId = 0;
+        appendNewRows();
+    }
+    
+    /**
+     * Append the doctors added since the table was last filled, e.g. by
+     * an import batch that has just been applied.
+     */
+    private void appendNewRows() {
+        for (Doctor doctor : doctorManager.getDoctorsAfter(lastShownId, Integer.MAX_VALUE)) {
             Object[] row = {
                 doctor.getId(),
                 doctor.getName(),
@@ -85,6 +115,7 @@ public class DoctorPanel extends JPanel {
                 doctor.isAvailable() ? "Yes" : "No"
             };
             tableModel.addRow(row);
+            lastShownId = doctor.getId();
         }
     }
     
@@ -184,6 +215,14 @@ public class DoctorPanel extends JPanel {
                 doctor.getEmail() != null ? doctor.getEmail() : "N/A",
                 doctor.isAvailable() ? "Yes" : "No"
             );
+            List<ScheduleException> leave = doctorManager.getScheduleExceptions(doctorId);
+            if (!leave.isEmpty()) {
+                StringBuilder sb = new StringBuilder(details).append("\n\nScheduled Leave:");
+                for (ScheduleException exception : leave) {
+                    sb.append("\n").append(exception);
+                }
+                details = sb.toString();
+            }
             JOptionPane.showMessageDialog(this, details, "Doctor Details", JOptionPane.INFORMATION_MESSAGE);
         }
     }
@@ -267,21 +306,65 @@ public class DoctorPanel extends JPanel {
         
         int doctorId = (int) tableModel.getValueAt(selectedRow, 0);
         
-        int confirm = JOptionPane.showConfirmDialog(this, 
-            "Are you sure you want to delete this doctor?", 
+        int appointmentCount = appointmentManager.getAppointmentCountByDoctor(doctorId);
+        String[] options = {"Cancel Appointments", "Reassign Appointments", "Archive Appointments", "Back"};
+        int choice = JOptionPane.showOptionDialog(this, 
+            "Are you sure you want to delete this doctor?\n" +
+            "The doctor has " + appointmentCount + " appointment(s).", 
             "Confirm Delete", 
-            JOptionPane.YES_NO_OPTION);
+            JOptionPane.DEFAULT_OPTION, 
+            JOptionPane.WARNING_MESSAGE, 
+            null, options, options[3]);
+        
+        int affected;
+        switch (choice) {
+            case 0:
+                affected = appointmentManager.deleteDoctor(doctorId, CascadeAction.CANCEL, null);
+                break;
+            case 1:
+                Doctor replacement = chooseReplacementDoctor(doctorId);
+                if (replacement == null) return;
+                affected = appointmentManager.deleteDoctor(doctorId, CascadeAction.REASSIGN, replacement);
+                break;
+            case 2:
+                affected = appointmentManager.deleteDoctor(doctorId, CascadeAction.ARCHIVE, null);
+                break;
+            default:
+                return;
+        }
         
-        if (confirm == JOptionPane.YES_OPTION) {
-            if (doctorManager.deleteDoctor(doctorId)) {
-                JOptionPane.showMessageDialog(this, "Doctor deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshTable();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete doctor", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+        if (affected >= 0) {
+            JOptionPane.showMessageDialog(this, 
+                "Doctor deleted successfully!\nAppointments affected: " + affected, 
+                "Success", 
+                JOptionPane.INFORMATION_MESSAGE);
+            refreshTable();
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to delete doctor", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
+    private Doctor chooseReplacementDoctor(int doctorId) {
+        JComboBox<String> doctorCombo = new JComboBox<>();
+        doctorManager.getAvailableDoctors().stream()
+            .filter(d -> d.getId() != doctorId)
+            .forEach(d -> doctorCombo.addItem(d.getId() + " - Dr. " + d.getName() + " (" + d.getSpecialization() + ")"));
+        
+        if (doctorCombo.getItemCount() == 0) {
+            JOptionPane.showMessageDialog(this, "No other available doctors", "Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        
+        int result = JOptionPane.showConfirmDialog(this, doctorCombo, 
+            "Select Replacement Doctor", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) {
+            return null;
+        }
+        
+        String selection = (String) doctorCombo.getSelectedItem();
+        return doctorManager.getDoctorById(Integer.parseInt(selection.split(" - ")[0]));
+    }
+    
     private void toggleAvailability() {
         int selectedRow = doctorTable.getSelectedRow();
         if (selectedRow == -1) {
@@ -302,57 +385,181 @@ public class DoctorPanel extends JPanel {
         }
     }
     
+    private void showScheduleLeaveDialog() {
+        int selectedRow = doctorTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a doctor", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        int doctorId = (int) tableModel.getValueAt(selectedRow, 0);
+        
+        JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Schedule Leave", true);
+        dialog.setLayout(new GridLayout(0, 2, 10, 10));
+        dialog.setSize(450, 300);
+        dialog.setLocationRelativeTo(this);
+        
+        JTextField fromField = new JTextField();
+        JTextField toField = new JTextField();
+        JTextField startTimeField = new JTextField();
+        JTextField endTimeField = new JTextField();
+        JTextField reasonField = new JTextField();
+        
+        dialog.add(new JLabel("From Date (yyyy-MM-dd):"));
+        dialog.add(fromField);
+        dialog.add(new JLabel("To Date (yyyy-MM-dd):"));
+        dialog.add(toField);
+        dialog.add(new JLabel("Start Time (HH:mm, optional):"));
+        dialog.add(startTimeField);
+        dialog.add(new JLabel("End Time (HH:mm, optional):"));
+        dialog.add(endTimeField);
+        dialog.add(new JLabel("Reason:"));
+        dialog.add(reasonField);
+        
+        JButton saveButton = new JButton("Save");
+        JButton cancelButton = new JButton("Cancel");
+        
+        saveButton.addActionListener(e -> {
+            LocalDate from = InputValidator.parseAndValidateDate(fromField.getText().trim());
+            String toText = toField.getText().trim();
+            LocalDate to = toText.isEmpty() ? from : InputValidator.parseAndValidateDate(toText);
+            if (from == null || to == null) {
+                JOptionPane.showMessageDialog(dialog, "Invalid date format. Use yyyy-MM-dd", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            // Without times the leave covers whole days
+            LocalDateTime start = from.atStartOfDay();
+            LocalDateTime end = to.plusDays(1).atStartOfDay();
+            String startText = startTimeField.getText().trim();
+            String endText = endTimeField.getText().trim();
+            if (!startText.isEmpty() || !endText.isEmpty()) {
+                LocalTime startTime = startText.isEmpty() ? LocalTime.MIDNIGHT : InputValidator.parseAndValidateTime(startText);
+                LocalTime endTime = endText.isEmpty() ? null : InputValidator.parseAndValidateTime(endText);
+                if (startTime == null || (!endText.isEmpty() && endTime == null)) {
+                    JOptionPane.showMessageDialog(dialog, "Invalid time format. Use HH:mm", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                start = from.atTime(startTime);
+                if (endTime != null) {
+                    end = to.atTime(endTime);
+                }
+            }
+            
+            String reason = reasonField.getText().trim();
+            ScheduleException exception = doctorManager.addScheduleException(doctorId, start, end,
+                                                                             reason.isEmpty() ? null : reason);
+            if (exception != null) {
+                JOptionPane.showMessageDialog(dialog, "Leave scheduled: " + exception, "Success", JOptionPane.INFORMATION_MESSAGE);
+                dialog.dispose();
+            } else {
+                JOptionPane.showMessageDialog(dialog, "The leave must end after it starts", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        
+        cancelButton.addActionListener(e -> dialog.dispose());
+        
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+        
+        dialog.add(buttonPanel);
+        dialog.setVisible(true);
+    }
+    
     private void exportDoctors() {
-        List<Doctor> doctors = doctorManager.getAllDoctors();
-        if (doctors.isEmpty()) {
+        if (doctorManager.getDoctorCount() == 0) {
             JOptionPane.showMessageDialog(this, "No doctors to export", "Info", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
         
-        try {
-            String fileName = CsvExporter.exportDoctors(doctors);
-            JOptionPane.showMessageDialog(this, 
-                "Doctors exported successfully!\nFile: " + fileName, 
-                "Export Success", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Failed to export doctors: " + e.getMessage(), 
-                "Export Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        // Snapshot the doctors here on the EDT; the worker only reads the list
+        List<Doctor> doctors = doctorManager.getAllDoctors();
+        progressPanel.start("Exporting doctors", buttonPanel);
+        
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return CsvExporter.exportDoctors(doctors, progressPanel);
+            }
+            
+            @Override
+            protected void done() {
+                progressPanel.finish();
+                try {
+                    String fileName = get();
+                    JOptionPane.showMessageDialog(DoctorPanel.this, 
+                        "Doctors exported successfully!\nFile: " + fileName, 
+                        "Export Success", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        JOptionPane.showMessageDialog(DoctorPanel.this, "Export cancelled", 
+                            "Export", JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(DoctorPanel.this, 
+                        "Failed to export doctors: " + cause.getMessage(), 
+                        "Export Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
     
     private void importDoctors() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Select CSV file to import");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv", "gz"));
         
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
-            
-            CsvImporter.ImportResult importResult = CsvImporter.importDoctors(
-                selectedFile.getAbsolutePath(), doctorManager
-            );
-            
-            StringBuilder message = new StringBuilder();
-            message.append("Import completed!\n");
-            message.append("Success: ").append(importResult.successCount).append("\n");
-            message.append("Errors: ").append(importResult.errorCount).append("\n");
+            String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+            progressPanel.start("Importing doctors", buttonPanel);
             
-            if (!importResult.errors.isEmpty()) {
-                message.append("\nError details:\n");
-                for (String error : importResult.errors) {
-                    message.append("- ").append(error).append("\n");
+            new SwingWorker<CsvImporter.ImportResult, Void>() {
+                @Override
+                protected CsvImporter.ImportResult doInBackground() {
+                    // The file is parsed here; each batch is applied on the EDT and
+                    // its doctors are appended to the table as soon as it commits
+                    return CsvImporter.importDoctors(filePath, doctorManager, ProgressPanel.IMPORT_BATCH_SIZE, 
+                        progressPanel, ProgressPanel.onEventThread(DoctorPanel.this::appendNewRows));
                 }
-            }
-            
-            JOptionPane.showMessageDialog(this, message.toString(), 
-                "Import Results", 
-                importResult.errorCount > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
-            
-            refreshTable();
+                
+                @Override
+                protected void done() {
+                    progressPanel.finish();
+                    CsvImporter.ImportResult importResult;
+                    try {
+                        importResult = get();
+                    } catch (Exception e) {
+                        JOptionPane.showMessageDialog(DoctorPanel.this, 
+                            "Failed to import doctors: " + e.getMessage(), 
+                            "Import Error", 
+                            JOptionPane.ERROR_MESSAGE);
+                        refreshTable();
+                        return;
+                    }
+                    
+                    StringBuilder message = new StringBuilder();
+                    message.append("Import completed!\n");
+                    message.append("Success: ").append(importResult.successCount).append("\n");
+                    message.append("Errors: ").append(importResult.errorCount).append("\n");
+                    
+                    if (!importResult.errors.isEmpty()) {
+                        message.append("\nError details:\n");
+                        for (String error : importResult.errors) {
+                            message.append("- ").append(error).append("\n");
+                        }
+                    }
+                    
+                    JOptionPane.showMessageDialog(DoctorPanel.this, message.toString(), 
+                        "Import Results", 
+                        importResult.errorCount > 0 || !importResult.errors.isEmpty() 
+                            ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                }
+            }.execute();
         }
     }
 }
@@ -36,8 +36,8 @@ public class MainWindow extends JFrame {
         
         tabbedPane = new JTabbedPane();
         
-        patientPanel = new PatientPanel(patientManager);
-        doctorPanel = new DoctorPanel(doctorManager);
+        patientPanel = new PatientPanel(patientManager, appointmentManager);
+        doctorPanel = new DoctorPanel(doctorManager, appointmentManager);
         appointmentPanel = new AppointmentPanel(appointmentManager, patientManager, doctorManager);
         
         tabbedPane.addTab("Patients", new ImageIcon(), patientPanel, "Manage Patients");
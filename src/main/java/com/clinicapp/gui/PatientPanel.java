@@ -3,6 +3,8 @@ package com.clinicapp.gui;
 import com.clinicapp.io.CsvExporter;
 import com.clinicapp.io.CsvImporter;
 import com.clinicapp.model.Patient;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.AppointmentManager.CascadeAction;
 import com.clinicapp.service.PatientManager;
 import com.clinicapp.util.InputValidator;
 
@@ -10,17 +12,25 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.io.File;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class PatientPanel extends JPanel {
     private PatientManager patientManager;
+    private AppointmentManager appointmentManager;
     private JTable patientTable;
     private DefaultTableModel tableModel;
+    private JPanel buttonPanel;
+    private ProgressPanel progressPanel;
     
-    public PatientPanel(PatientManager patientManager) {
+    // ID of the last patient in the table; later patients are appended by appendNewRows
+    private int lastShownId;
+    
+    public PatientPanel(PatientManager patientManager, AppointmentManager appointmentManager) {
         this.patientManager = patientManager;
+        this.appointmentManager = appointmentManager;
         initializeUI();
         refreshTable();
     }
@@ -40,7 +50,8 @@ public class PatientPanel extends JPanel {
         patientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(patientTable);
         
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        progressPanel = new ProgressPanel();
         
         JButton addButton = new JButton("Add Patient");
         JButton viewButton = new JButton("View Details");
@@ -48,6 +59,7 @@ public class PatientPanel extends JPanel {
         JButton deleteButton = new JButton("Delete Patient");
         JButton exportButton = new JButton("Export to CSV");
         JButton importButton = new JButton("Import from CSV");
+        JButton duplicatesButton = new JButton("Find Duplicates");
         JButton refreshButton = new JButton("Refresh");
         
         addButton.addActionListener(e -> showAddPatientDialog());
@@ -56,6 +68,7 @@ public class PatientPanel extends JPanel {
         deleteButton.addActionListener(e -> deletePatient());
         exportButton.addActionListener(e -> exportPatients());
         importButton.addActionListener(e -> importPatients());
+        duplicatesButton.addActionListener(e -> findDuplicates());
         refreshButton.addActionListener(e -> refreshTable());
         
         buttonPanel.add(addButton);
@@ -64,16 +77,29 @@ public class PatientPanel extends JPanel {
         buttonPanel.add(deleteButton);
         buttonPanel.add(exportButton);
         buttonPanel.add(importButton);
+        buttonPanel.add(duplicatesButton);
         buttonPanel.add(refreshButton);
         
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(progressPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        
         add(scrollPane, BorderLayout.CENTER);
-        add(buttonPanel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
     }
     
     private void refreshTable() {
         tableModel.setRowCount(0);
-        List<Patient> patients = patientManager.getAllPatients();
-        for (Patient patient : patients) {
+        lastShownId = 0;
+        appendNewRows();
+    }
+    
+    /**
+     * Append the patients added since the table was last filled, e.g. by
+     * an import batch that has just been applied.
+     */
+    private void appendNewRows() {
+        for (Patient patient : patientManager.getPatientsAfter(lastShownId, Integer.MAX_VALUE)) {
             Object[] row = {
                 patient.getId(),
                 patient.getName(),
@@ -85,6 +111,7 @@ public class PatientPanel extends JPanel {
                 patient.getBloodType() != null ? patient.getBloodType() : ""
             };
             tableModel.addRow(row);
+            lastShownId = patient.getId();
         }
     }
     
@@ -159,7 +186,27 @@ public class PatientPanel extends JPanel {
                 return;
             }
             
-            Patient patient = patientManager.addPatient(
+            Patient existing = patientManager.findDuplicate(name, dob, phone, email.isEmpty() ? null : email);
+            if (existing != null) {
+                JOptionPane.showMessageDialog(dialog,
+                    "This patient is already registered:\n" + existing, "Duplicate Patient", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            List<Patient> similar = patientManager.findPossibleDuplicates(name, dob, phone, email.isEmpty() ? null : email);
+            if (!similar.isEmpty()) {
+                StringBuilder message = new StringBuilder("Patients with the same name and date of birth, phone or email exist:\n");
+                for (Patient candidate : similar) {
+                    message.append(candidate).append('\n');
+                }
+                message.append("\nRegister this patient anyway?");
+                if (JOptionPane.showConfirmDialog(dialog, message.toString(), "Possible Duplicate",
+                        JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) != JOptionPane.YES_OPTION) {
+                    return;
+                }
+            }
+            
+            Patient patient = patientManager.registerPatient(
                 name, dob, gender, phone,
                 email.isEmpty() ? null : email,
                 address,
@@ -301,72 +348,189 @@ public class PatientPanel extends JPanel {
         
         int patientId = (int) tableModel.getValueAt(selectedRow, 0);
         
-        int confirm = JOptionPane.showConfirmDialog(this, 
-            "Are you sure you want to delete this patient?", 
+        int appointmentCount = appointmentManager.getAppointmentCountByPatient(patientId);
+        String[] options = {"Cancel Appointments", "Archive Appointments", "Remove All Data", "Back"};
+        int choice = JOptionPane.showOptionDialog(this, 
+            "Are you sure you want to delete this patient?\n" +
+            "The patient has " + appointmentCount + " appointment(s).\n" +
+            "Remove All Data also erases archived appointments (retention requests).", 
             "Confirm Delete", 
-            JOptionPane.YES_NO_OPTION);
+            JOptionPane.DEFAULT_OPTION, 
+            JOptionPane.WARNING_MESSAGE, 
+            null, options, options[3]);
         
-        if (confirm == JOptionPane.YES_OPTION) {
-            if (patientManager.deletePatient(patientId)) {
-                JOptionPane.showMessageDialog(this, "Patient deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshTable();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete patient", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+        int affected;
+        switch (choice) {
+            case 0:
+                affected = appointmentManager.deletePatient(patientId, CascadeAction.CANCEL);
+                break;
+            case 1:
+                affected = appointmentManager.deletePatient(patientId, CascadeAction.ARCHIVE);
+                break;
+            case 2:
+                affected = appointmentManager.removeAllPatientData(patientId);
+                break;
+            default:
+                return;
+        }
+        
+        if (affected >= 0) {
+            JOptionPane.showMessageDialog(this, 
+                "Patient deleted successfully!\nAppointments affected: " + affected, 
+                "Success", 
+                JOptionPane.INFORMATION_MESSAGE);
+            refreshTable();
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to delete patient", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
     private void exportPatients() {
-        List<Patient> patients = patientManager.getAllPatients();
-        if (patients.isEmpty()) {
+        if (patientManager.getPatientCount() == 0) {
             JOptionPane.showMessageDialog(this, "No patients to export", "Info", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
         
-        try {
-            String fileName = CsvExporter.exportPatients(patients);
-            JOptionPane.showMessageDialog(this, 
-                "Patients exported successfully!\nFile: " + fileName, 
-                "Export Success", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Failed to export patients: " + e.getMessage(), 
-                "Export Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        // Snapshot the patients here on the EDT; the worker only reads the list
+        List<Patient> patients = patientManager.getAllPatients();
+        progressPanel.start("Exporting patients", buttonPanel);
+        
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return CsvExporter.exportPatients(patients, progressPanel);
+            }
+            
+            @Override
+            protected void done() {
+                progressPanel.finish();
+                try {
+                    String fileName = get();
+                    JOptionPane.showMessageDialog(PatientPanel.this, 
+                        "Patients exported successfully!\nFile: " + fileName, 
+                        "Export Success", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        JOptionPane.showMessageDialog(PatientPanel.this, "Export cancelled", 
+                            "Export", JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(PatientPanel.this, 
+                        "Failed to export patients: " + cause.getMessage(), 
+                        "Export Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
     
     private void importPatients() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Select CSV file to import");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv", "gz"));
         
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
-            
-            CsvImporter.ImportResult importResult = CsvImporter.importPatients(
-                selectedFile.getAbsolutePath(), patientManager
-            );
+            String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+            progressPanel.start("Importing patients", buttonPanel);
             
-            StringBuilder message = new StringBuilder();
-            message.append("Import completed!\n");
-            message.append("Success: ").append(importResult.successCount).append("\n");
-            message.append("Errors: ").append(importResult.errorCount).append("\n");
-            
-            if (!importResult.errors.isEmpty()) {
-                message.append("\nError details:\n");
-                for (String error : importResult.errors) {
-                    message.append("- ").append(error).append("\n");
+            new SwingWorker<CsvImporter.ImportResult, Void>() {
+                @Override
+                protected CsvImporter.ImportResult doInBackground() {
+                    // The file is parsed here; each batch is applied on the EDT and
+                    // its patients are appended to the table as soon as it commits
+                    return CsvImporter.importPatients(filePath, patientManager, 
+                        CsvImporter.DuplicatePolicy.SKIP, ProgressPanel.IMPORT_BATCH_SIZE, 
+                        progressPanel, ProgressPanel.onEventThread(PatientPanel.this::appendNewRows));
+                }
+                
+                @Override
+                protected void done() {
+                    progressPanel.finish();
+                    CsvImporter.ImportResult importResult;
+                    try {
+                        importResult = get();
+                    } catch (Exception e) {
+                        JOptionPane.showMessageDialog(PatientPanel.this, 
+                            "Failed to import patients: " + e.getMessage(), 
+                            "Import Error", 
+                            JOptionPane.ERROR_MESSAGE);
+                        refreshTable();
+                        return;
+                    }
+                    
+                    StringBuilder message = new StringBuilder();
+                    message.append("Import completed!\n");
+                    message.append("Success: ").append(importResult.successCount).append("\n");
+                    message.append("Duplicates skipped: ").append(importResult.duplicateCount).append("\n");
+                    message.append("Errors: ").append(importResult.errorCount).append("\n");
+                    
+                    if (!importResult.errors.isEmpty()) {
+                        message.append("\nError details:\n");
+                        for (String error : importResult.errors) {
+                            message.append("- ").append(error).append("\n");
+                        }
+                    }
+                    
+                    JOptionPane.showMessageDialog(PatientPanel.this, message.toString(), 
+                        "Import Results", 
+                        importResult.errorCount > 0 || !importResult.errors.isEmpty() 
+                            ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
                 }
+            }.execute();
+        }
+    }
+    
+    private void findDuplicates() {
+        // Snapshot the shared duplicate buckets here on the EDT (only buckets with
+        // two or more patients are visited), then merge them into clusters in the
+        // background so large tables don't freeze the UI
+        List<List<Patient>> groups = patientManager.getDuplicateGroups();
+        
+        new SwingWorker<List<List<Patient>>, Void>() {
+            @Override
+            protected List<List<Patient>> doInBackground() {
+                return PatientManager.clusterDuplicates(groups);
             }
             
-            JOptionPane.showMessageDialog(this, message.toString(), 
-                "Import Results", 
-                importResult.errorCount > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
-            
-            refreshTable();
-        }
+            @Override
+            protected void done() {
+                List<List<Patient>> clusters;
+                try {
+                    clusters = get();
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(PatientPanel.this, 
+                        "Failed to find duplicates: " + e.getMessage(), 
+                        "Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                
+                if (clusters.isEmpty()) {
+                    JOptionPane.showMessageDialog(PatientPanel.this, "No duplicate patients found", 
+                        "Duplicates", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                
+                StringBuilder message = new StringBuilder();
+                message.append("Found ").append(clusters.size()).append(" group(s) of duplicate patients:\n");
+                for (List<Patient> cluster : clusters) {
+                    message.append("\n");
+                    for (Patient patient : cluster) {
+                        message.append("- ID ").append(patient.getId()).append(": ")
+                               .append(patient.getName()).append(", ")
+                               .append(patient.getDateOfBirth()).append(", ")
+                               .append(patient.getPhoneNumber()).append("\n");
+                    }
+                }
+                
+                JTextArea textArea = new JTextArea(message.toString(), 20, 50);
+                textArea.setEditable(false);
+                JOptionPane.showMessageDialog(PatientPanel.this, new JScrollPane(textArea), 
+                    "Duplicates", JOptionPane.WARNING_MESSAGE);
+            }
+        }.execute();
     }
 }
@@ -0,0 +1,154 @@
+package com.clinicapp.gui;
+
+import com.clinicapp.io.ProgressListener;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.Executor;
+
+/**
+ * ProgressPanel shows a background import or export: a progress bar, the
+ * rows per second and time left, and a Cancel button. It is passed to
+ * CsvImporter and CsvExporter as their ProgressListener. Progress arrives
+ * on the worker thread and is only stored; a Swing timer shows it a few
+ * times per second, so a fast import never floods the EDT with repaints.
+ */
+class ProgressPanel extends JPanel implements ProgressListener {
+    private static final long serialVersionUID = 1L;
+
+    // Rows applied per EDT event during an import; small enough to stay well inside a frame
+    static final int IMPORT_BATCH_SIZE = 250;
+
+    // Milliseconds between display updates
+    private static final int UPDATE_INTERVAL = 100;
+
+    private final JProgressBar progressBar;
+    private final JLabel statusLabel;
+    private final JButton cancelButton;
+    private final Timer timer;
+
+    // Latest progress, written by the worker thread
+    private volatile long rows;
+    private volatile double fraction;
+    private volatile boolean cancelled;
+
+    private String action;
+    private long startTime;
+    private Container controls;
+
+    ProgressPanel() {
+        super(new BorderLayout(10, 0));
+        setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        progressBar = new JProgressBar(0, 1000);
+        statusLabel = new JLabel();
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelled = true;
+            cancelButton.setEnabled(false);
+            statusLabel.setText(action + ": cancelling...");
+        });
+        timer = new Timer(UPDATE_INTERVAL, e -> update());
+
+        add(statusLabel, BorderLayout.WEST);
+        add(progressBar, BorderLayout.CENTER);
+        add(cancelButton, BorderLayout.EAST);
+        setVisible(false);
+    }
+
+    /**
+     * Show the panel for a new operation and disable the buttons in a
+     * container until it finishes, so the managers are not edited while
+     * an import is applying batches. Call on the EDT.
+     *
+     * @param action Shown before the progress, e.g. "Importing patients"
+     * @param controls Container whose components are disabled meanwhile
+     */
+    void start(String action, Container controls) {
+        this.action = action;
+        this.controls = controls;
+        this.rows = 0;
+        this.fraction = -1;
+        this.cancelled = false;
+        this.startTime = System.nanoTime();
+
+        for (Component component : controls.getComponents()) {
+            component.setEnabled(false);
+        }
+        cancelButton.setEnabled(true);
+        progressBar.setValue(0);
+        update();
+        setVisible(true);
+        revalidate();
+        timer.start();
+    }
+
+    /**
+     * Hide the panel and re-enable the controls. Call on the EDT.
+     */
+    void finish() {
+        timer.stop();
+        setVisible(false);
+        revalidate();
+        if (controls != null) {
+            for (Component component : controls.getComponents()) {
+                component.setEnabled(true);
+            }
+            controls = null;
+        }
+    }
+
+    /**
+     * An executor for CsvImporter that applies each batch on the EDT and
+     * then runs a follow-up step, e.g. appending the new rows to a table.
+     */
+    static Executor onEventThread(Runnable afterBatch) {
+        return batch -> SwingUtilities.invokeLater(() -> {
+            batch.run();
+            afterBatch.run();
+        });
+    }
+
+    @Override
+    public void onProgress(long rows, double fraction) {
+        this.rows = rows;
+        this.fraction = fraction;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void update() {
+        if (cancelled) {
+            return;
+        }
+        long done = rows;
+        double share = fraction;
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        StringBuilder status = new StringBuilder(action).append(": ");
+        status.append(String.format("%,d rows", done));
+        if (seconds > 0 && done > 0) {
+            status.append(String.format(", %,.0f rows/s", done / seconds));
+        }
+        if (share > 0 && share < 1) {
+            status.append(", ").append(formatDuration(seconds * (1 - share) / share)).append(" left");
+        }
+        statusLabel.setText(status.toString());
+
+        progressBar.setIndeterminate(share < 0);
+        if (share >= 0) {
+            progressBar.setValue((int) (share * progressBar.getMaximum()));
+        }
+    }
+
+    private static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        if (total < 60) {
+            return total + "s";
+        }
+        return String.format("%d:%02d", total / 60, total % 60);
+    }
+}
@@ -0,0 +1,189 @@
+package com.clinicapp.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * AsyncGzipOutputStream gzip-compresses on a background thread. Writers
+ * fill a buffer; full buffers are handed to the compression thread through
+ * a small bounded queue and recycled once compressed, so row formatting
+ * and deflate run on different cores and no garbage is produced per write.
+ */
+class AsyncGzipOutputStream extends OutputStream {
+    private static final int BUFFER_SIZE = 1 << 18;
+    private static final int BUFFER_COUNT = 4;
+
+    // Buffer passed between the writer and the compression thread
+    private static class Block {
+        final byte[] data = new byte[BUFFER_SIZE];
+        int length;
+    }
+
+    // Marker queued after the last buffer
+    private static final Block END = new Block();
+
+    private final BlockingQueue<Block> filled;
+    private final BlockingQueue<Block> free;
+    private final Thread compressor;
+    private volatile IOException failure;
+    private Block current;
+    private boolean closed;
+
+    /**
+     * @param out Destination for the compressed bytes; closed when this stream is closed
+     */
+    AsyncGzipOutputStream(OutputStream out) {
+        this.filled = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        this.free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        for (int i = 1; i < BUFFER_COUNT; i++) {
+            free.add(new Block());
+        }
+        this.current = new Block();
+        this.compressor = new Thread(() -> compress(out), "csv-gzip");
+        this.compressor.setDaemon(true);
+        this.compressor.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current.length == BUFFER_SIZE) {
+            handOff();
+        }
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (current.length == BUFFER_SIZE) {
+                handOff();
+            }
+            int count = Math.min(length, BUFFER_SIZE - current.length);
+            System.arraycopy(bytes, offset, current.data, current.length, count);
+            current.length += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Buffered bytes are compressed when a buffer fills or on close; flush
+     * does not force a partial gzip block.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+    }
+
+    /**
+     * Compress the remaining bytes and wait for the compression thread to
+     * close the destination. The thread is always stopped and the
+     * destination closed, even if compression failed; the failure is
+     * thrown afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            try {
+                if (current.length > 0) {
+                    handOff();
+                }
+            } finally {
+                filled.put(END);
+                compressor.join();
+            }
+        } catch (InterruptedException e) {
+            compressor.interrupt();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        }
+        checkFailure();
+    }
+
+    private void handOff() throws IOException {
+        checkFailure();
+        try {
+            filled.put(current);
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        }
+        current.length = 0;
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Compression failed", failure);
+        }
+    }
+
+    /**
+     * Compression thread: deflate filled buffers in order until END, then
+     * close the destination. Buffers keep being taken after a failure, so
+     * the writer never blocks and END is always seen.
+     */
+    private void compress(OutputStream out) {
+        GZIPOutputStream gzip = null;
+        try {
+            gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        } catch (IOException e) {
+            failure = e;
+        }
+        try {
+            while (true) {
+                Block block = filled.take();
+                if (block == END) {
+                    break;
+                }
+                if (failure == null) {
+                    try {
+                        gzip.write(block.data, 0, block.length);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                free.put(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeDestination(gzip, out);
+        }
+    }
+
+    /**
+     * Finish and close the gzip stream, which also releases its deflater.
+     * After a failure the destination is closed directly as well, since a
+     * failing finish may skip closing it.
+     */
+    private void closeDestination(GZIPOutputStream gzip, OutputStream out) {
+        if (gzip != null) {
+            try {
+                gzip.close();
+                if (failure == null) {
+                    return;
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.clinicapp.io;
+
+/**
+ * Value types of the columns in a columnar export file. Each type has a
+ * fixed width on disk except STRING, which is dictionary-encoded.
+ */
+public enum ColumnType {
+    INT(4),        // 32-bit signed integer
+    DATE(4),       // LocalDate as days since 1970-01-01
+    TIME(4),       // LocalTime as seconds since midnight
+    TIMESTAMP(8),  // LocalDateTime as seconds since 1970-01-01T00:00
+    BOOLEAN(1),    // 0 or 1
+    STRING(0);     // Dictionary of distinct values plus one code per row
+
+    // Bytes per value on disk; 0 for STRING
+    final int width;
+
+    ColumnType(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Whether values are stored as numbers with min/max statistics.
+     */
+    boolean isNumeric() {
+        return this != STRING;
+    }
+}
@@ -0,0 +1,439 @@
+package com.clinicapp.io;
+
+import com.clinicapp.model.Appointment;
+import com.clinicapp.model.DateTimeCodec;
+import com.clinicapp.model.Doctor;
+import com.clinicapp.model.Patient;
+import com.clinicapp.service.AppointmentManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * ColumnarExporter writes patients, doctors and appointments to a binary
+ * columnar file for analytics jobs, as an alternative to CSV. Values keep
+ * their types (dates, times and numbers are not formatted as text),
+ * strings are dictionary-encoded so a repeated name or status is stored
+ * once per row group, and each row group records the minimum and maximum
+ * of its numeric columns so a reader can skip groups that cannot match.
+ * ColumnarReader reads the files back.
+ *
+ * File layout, numbers big-endian:
+ *
+ *   magic "CLCF", version byte
+ *   row group 1: one chunk per column, in schema order
+ *   row group 2: ...
+ *   footer
+ *   footer length (int), magic "CLCF"
+ *
+ * Strings are written as their UTF-8 length (int) followed by the bytes.
+ * The footer holds the table name, the schema (each column's name and
+ * type) and, for each row group, its row count and each chunk's offset,
+ * length and min/max. A numeric chunk holds one fixed-width value per
+ * row, with the type's smallest value (Integer.MIN_VALUE, Long.MIN_VALUE,
+ * -1 for BOOLEAN) for null. A STRING chunk holds the group's distinct
+ * values (count, then length-prefixed UTF-8) followed by one code per row:
+ * 0 for null and i for the i-th value, 1, 2 or 4 bytes wide depending on
+ * the number of values.
+ */
+public class ColumnarExporter {
+    private static final String EXPORT_DIRECTORY = "exports/";
+    public static final String EXTENSION = ".col";
+
+    // Rows per row group: the unit of min/max statistics and of skipping
+    public static final int DEFAULT_ROW_GROUP_SIZE = 1 << 16;
+
+    static final byte[] MAGIC = {'C', 'L', 'C', 'F'};
+    static final int VERSION = 1;
+
+    // In-memory null for numeric columns
+    static final long NULL = Long.MIN_VALUE;
+
+    /**
+     * One column of a table: its name, type and how to get the value from a
+     * record. Numeric columns return NULL for a missing value.
+     */
+    static final class Column<T> {
+        final String name;
+        final ColumnType type;
+        final ToLongFunction<T> number;
+        final Function<T, String> text;
+
+        private Column(String name, ColumnType type, ToLongFunction<T> number, Function<T, String> text) {
+            this.name = name;
+            this.type = type;
+            this.number = number;
+            this.text = text;
+        }
+
+        static <T> Column<T> of(String name, ColumnType type, ToLongFunction<T> number) {
+            return new Column<>(name, type, number, null);
+        }
+
+        static <T> Column<T> text(String name, Function<T, String> text) {
+            return new Column<>(name, ColumnType.STRING, null, text);
+        }
+    }
+
+    private static final List<Column<Patient>> PATIENT_COLUMNS = Arrays.asList(
+        Column.of("ID", ColumnType.INT, Patient::getId),
+        Column.text("Name", Patient::getName),
+        Column.of("Date of Birth", ColumnType.DATE, p -> date(p.getDateOfBirth())),
+        Column.text("Gender", Patient::getGender),
+        Column.text("Phone Number", Patient::getPhoneNumber),
+        Column.text("Email", Patient::getEmail),
+        Column.text("Address", Patient::getAddress),
+        Column.text("Blood Type", Patient::getBloodType),
+        Column.text("Allergies", Patient::getAllergies)
+    );
+
+    private static final List<Column<Doctor>> DOCTOR_COLUMNS = Arrays.asList(
+        Column.of("ID", ColumnType.INT, Doctor::getId),
+        Column.text("Name", Doctor::getName),
+        Column.text("Specialization", Doctor::getSpecialization),
+        Column.text("Phone Number", Doctor::getPhoneNumber),
+        Column.text("Email", Doctor::getEmail),
+        Column.text("Available Days",
+                    d -> d.getAvailableDays() != null ? String.join(";", d.getAvailableDays()) : null),
+        Column.of("Start Time", ColumnType.TIME, d -> time(d.getStartTime())),
+        Column.of("End Time", ColumnType.TIME, d -> time(d.getEndTime())),
+        Column.of("Available", ColumnType.BOOLEAN, d -> d.isAvailable() ? 1 : 0)
+    );
+
+    private static final List<Column<Appointment>> APPOINTMENT_COLUMNS = Arrays.asList(
+        Column.of("ID", ColumnType.INT, Appointment::getId),
+        Column.of("Date", ColumnType.DATE, a -> date(a.getAppointmentDate())),
+        Column.of("Start Time", ColumnType.TIME, a -> time(a.getStartTime())),
+        Column.of("End Time", ColumnType.TIME, a -> time(a.getEndTime())),
+        Column.of("Patient ID", ColumnType.INT, a -> a.getPatient().getId()),
+        Column.text("Patient Name", a -> a.getPatient().getName()),
+        Column.of("Doctor ID", ColumnType.INT, a -> a.getDoctor().getId()),
+        Column.text("Doctor Name", a -> a.getDoctor().getName()),
+        Column.text("Reason", Appointment::getReason),
+        Column.text("Status", a -> a.getStatus().toString()),
+        Column.text("Notes", Appointment::getNotes),
+        Column.of("Created At", ColumnType.TIMESTAMP, a -> timestamp(a.getCreatedAt()))
+    );
+
+    public static String exportPatients(Iterator<Patient> patients) throws IOException {
+        return exportPatients(patients, newFileName("patients"), DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public static String exportPatients(Iterator<Patient> patients, String fileName,
+                                        int rowGroupSize) throws IOException {
+        return write("patients", PATIENT_COLUMNS, patients, fileName, rowGroupSize);
+    }
+
+    public static String exportDoctors(Iterator<Doctor> doctors) throws IOException {
+        return exportDoctors(doctors, newFileName("doctors"), DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public static String exportDoctors(Iterator<Doctor> doctors, String fileName,
+                                       int rowGroupSize) throws IOException {
+        return write("doctors", DOCTOR_COLUMNS, doctors, fileName, rowGroupSize);
+    }
+
+    /**
+     * Export all appointments in date order, so that each row group covers
+     * a narrow range of dates and date-filtered reads skip most groups.
+     */
+    public static String exportAppointments(AppointmentManager appointmentManager) throws IOException {
+        List<Appointment> appointments = appointmentManager.getAllAppointments();
+        appointments.sort(Comparator.comparing(Appointment::getAppointmentDate)
+                                    .thenComparing(Appointment::getStartTime));
+        return exportAppointments(appointments.iterator(), newFileName("appointments"), DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * Export appointments in the iterator's order. Row groups can only be
+     * skipped by date if the appointments come roughly in date order.
+     */
+    public static String exportAppointments(Iterator<Appointment> appointments, String fileName,
+                                            int rowGroupSize) throws IOException {
+        return write("appointments", APPOINTMENT_COLUMNS, appointments, fileName, rowGroupSize);
+    }
+
+    private static String newFileName(String table) {
+        return EXPORT_DIRECTORY + table + "_" + System.currentTimeMillis() + EXTENSION;
+    }
+
+    /**
+     * Write any table; the exports above are this with a fixed schema.
+     */
+    static <T> String write(String table, List<Column<T>> columns, Iterator<T> records,
+                            String fileName, int rowGroupSize) throws IOException {
+        try (TableWriter<T> writer = new TableWriter<>(table, columns, fileName, rowGroupSize)) {
+            while (records.hasNext()) {
+                writer.write(records.next());
+            }
+            writer.finish();
+        }
+        return fileName;
+    }
+
+    private static long date(LocalDate date) {
+        return date != null ? date.toEpochDay() : NULL;
+    }
+
+    private static long time(LocalTime time) {
+        return time != null ? time.toSecondOfDay() : NULL;
+    }
+
+    private static long time(String time) {
+        if (time == null || time.isEmpty()) {
+            return NULL;
+        }
+        try {
+            return DateTimeCodec.parseTime(time).toSecondOfDay();
+        } catch (DateTimeParseException e) {
+            return NULL;
+        }
+    }
+
+    private static long timestamp(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toEpochSecond(ZoneOffset.UTC) : NULL;
+    }
+
+    /**
+     * Buffers one row group column by column and writes it out when full,
+     * collecting the footer metadata as it goes.
+     */
+    private static final class TableWriter<T> implements Closeable {
+        private final String table;
+        private final List<Column<T>> columns;
+        private final int rowGroupSize;
+        private final FileChannel channel;
+
+        // Values of the row group being filled: numbers for numeric columns, texts for STRING
+        private final long[][] numbers;
+        private final String[][] texts;
+        private int size;
+
+        // Per row group: row count, and offset, length, min, max per column
+        private final List<Integer> groupRows = new ArrayList<>();
+        private final List<long[]> groupChunks = new ArrayList<>();
+        private long offset;
+
+        private final ChunkBuffer buffer = new ChunkBuffer();
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        TableWriter(String table, List<Column<T>> columns, String fileName, int rowGroupSize) throws IOException {
+            this.table = table;
+            this.columns = columns;
+            this.rowGroupSize = Math.max(1, rowGroupSize);
+            this.numbers = new long[columns.size()][];
+            this.texts = new String[columns.size()][];
+            for (int c = 0; c < columns.size(); c++) {
+                if (columns.get(c).type.isNumeric()) {
+                    numbers[c] = new long[this.rowGroupSize];
+                } else {
+                    texts[c] = new String[this.rowGroupSize];
+                }
+            }
+
+            Path path = Paths.get(fileName);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            flushBuffer();
+        }
+
+        void write(T record) throws IOException {
+            for (int c = 0; c < columns.size(); c++) {
+                Column<T> column = columns.get(c);
+                if (column.type.isNumeric()) {
+                    numbers[c][size] = column.number.applyAsLong(record);
+                } else {
+                    texts[c][size] = column.text.apply(record);
+                }
+            }
+            if (++size == rowGroupSize) {
+                writeRowGroup();
+            }
+        }
+
+        /**
+         * Write the last row group and the footer.
+         */
+        void finish() throws IOException {
+            if (size > 0) {
+                writeRowGroup();
+            }
+
+            writeString(table);
+            out.writeInt(columns.size());
+            for (Column<T> column : columns) {
+                writeString(column.name);
+                out.writeByte(column.type.ordinal());
+            }
+            out.writeInt(groupRows.size());
+            for (int g = 0; g < groupRows.size(); g++) {
+                out.writeInt(groupRows.get(g));
+                long[] chunks = groupChunks.get(g);
+                for (int c = 0; c < columns.size(); c++) {
+                    out.writeLong(chunks[c * 4]);
+                    out.writeInt((int) chunks[c * 4 + 1]);
+                    if (columns.get(c).type.isNumeric()) {
+                        out.writeLong(chunks[c * 4 + 2]);
+                        out.writeLong(chunks[c * 4 + 3]);
+                    }
+                }
+            }
+            int footerLength = buffer.size();
+            out.writeInt(footerLength);
+            out.write(MAGIC);
+            flushBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void writeRowGroup() throws IOException {
+            long[] chunks = new long[columns.size() * 4];
+            for (int c = 0; c < columns.size(); c++) {
+                ColumnType type = columns.get(c).type;
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                if (type.isNumeric()) {
+                    for (int i = 0; i < size; i++) {
+                        long value = numbers[c][i];
+                        if (value != NULL) {
+                            min = Math.min(min, value);
+                            max = Math.max(max, value);
+                        }
+                        writeNumber(type, value);
+                    }
+                } else {
+                    writeStrings(texts[c]);
+                }
+                chunks[c * 4] = offset;
+                chunks[c * 4 + 1] = buffer.size();
+                chunks[c * 4 + 2] = min;
+                chunks[c * 4 + 3] = max;
+                flushBuffer();
+            }
+            groupRows.add(size);
+            groupChunks.add(chunks);
+            size = 0;
+        }
+
+        private void writeNumber(ColumnType type, long value) throws IOException {
+            switch (type) {
+                case TIMESTAMP:
+                    out.writeLong(value);
+                    break;
+                case BOOLEAN:
+                    out.writeByte(value == NULL ? -1 : (int) value);
+                    break;
+                default:
+                    out.writeInt(value == NULL ? Integer.MIN_VALUE : (int) value);
+            }
+        }
+
+        /**
+         * Write a STRING chunk: the dictionary, then one code per row.
+         */
+        private void writeStrings(String[] values) throws IOException {
+            dictionary.clear();
+            List<String> entries = new ArrayList<>();
+            int[] codes = new int[size];
+            for (int i = 0; i < size; i++) {
+                String value = values[i];
+                values[i] = null;
+                if (value == null) {
+                    continue;
+                }
+                Integer code = dictionary.get(value);
+                if (code == null) {
+                    entries.add(value);
+                    code = entries.size();
+                    dictionary.put(value, code);
+                }
+                codes[i] = code;
+            }
+
+            out.writeInt(entries.size());
+            for (String entry : entries) {
+                writeString(entry);
+            }
+            int width = codeWidth(entries.size());
+            for (int i = 0; i < size; i++) {
+                if (width == 1) {
+                    out.writeByte(codes[i]);
+                } else if (width == 2) {
+                    out.writeShort(codes[i]);
+                } else {
+                    out.writeInt(codes[i]);
+                }
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void flushBuffer() throws IOException {
+            ByteBuffer bytes = buffer.toByteBuffer();
+            offset += bytes.remaining();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Bytes per dictionary code for a dictionary of a given size (codes run to size).
+     */
+    static int codeWidth(int dictionarySize) {
+        if (dictionarySize < 0x100) {
+            return 1;
+        }
+        return dictionarySize < 0x10000 ? 2 : 4;
+    }
+
+    /**
+     * A byte buffer whose contents can be written to a channel without copying.
+     */
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+        ChunkBuffer() {
+            super(1 << 16);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.clinicapp.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ColumnarReader reads files written by ColumnarExporter. Opening a file
+ * reads only its footer; a scan then reads only the chunks of the columns
+ * it asks for, and with a date range it skips every row group whose
+ * min/max statistics for the date column fall outside the range without
+ * reading any of its data.
+ *
+ * Not thread-safe: use one reader per thread.
+ */
+public class ColumnarReader implements Closeable {
+    private final FileChannel channel;
+    private final String table;
+    private final String[] columnNames;
+    private final ColumnType[] columnTypes;
+
+    // Per row group: row count, and per column the chunk offset, length, min and max
+    private final int[] groupRows;
+    private final long[][] groupChunks;
+
+    /**
+     * Receives the rows of a scan one at a time.
+     */
+    public interface RowVisitor {
+        void visit(Row row);
+    }
+
+    /**
+     * The current row of a scan. Columns are numbered by their position in
+     * the list passed to scan. Valid only during the visit call.
+     */
+    public static final class Row {
+        private final ColumnType[] types;
+        private final long[][] numbers;
+        private final String[][] dictionaries;
+        private final int[][] codes;
+        private int index;
+
+        private Row(ColumnType[] types) {
+            this.types = types;
+            this.numbers = new long[types.length][];
+            this.dictionaries = new String[types.length][];
+            this.codes = new int[types.length][];
+        }
+
+        public boolean isNull(int column) {
+            return types[column] == ColumnType.STRING ? codes[column][index] == 0
+                                                      : numbers[column][index] == ColumnarExporter.NULL;
+        }
+
+        public int getInt(int column) {
+            return (int) numbers[column][index];
+        }
+
+        public LocalDate getDate(int column) {
+            long value = numbers[column][index];
+            return value == ColumnarExporter.NULL ? null : LocalDate.ofEpochDay(value);
+        }
+
+        public LocalTime getTime(int column) {
+            long value = numbers[column][index];
+            return value == ColumnarExporter.NULL ? null : LocalTime.ofSecondOfDay(value);
+        }
+
+        public LocalDateTime getTimestamp(int column) {
+            long value = numbers[column][index];
+            return value == ColumnarExporter.NULL ? null : LocalDateTime.ofEpochSecond(value, 0, ZoneOffset.UTC);
+        }
+
+        public boolean getBoolean(int column) {
+            return numbers[column][index] == 1;
+        }
+
+        /**
+         * @return The value, or null; equal values within a row group are the same instance
+         */
+        public String getString(int column) {
+            int code = codes[column][index];
+            return code == 0 ? null : dictionaries[column][code - 1];
+        }
+    }
+
+    private ColumnarReader(FileChannel channel, String table, String[] columnNames, ColumnType[] columnTypes,
+                           int[] groupRows, long[][] groupChunks) {
+        this.channel = channel;
+        this.table = table;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.groupRows = groupRows;
+        this.groupChunks = groupChunks;
+    }
+
+    /**
+     * Open a file and read its footer.
+     *
+     * @throws IOException if the file cannot be read or is not a columnar export
+     */
+    public static ColumnarReader open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int trailerLength = 4 + ColumnarExporter.MAGIC.length;
+            if (size < ColumnarExporter.MAGIC.length + 1 + trailerLength) {
+                throw new IOException("Not a columnar export file: " + filePath);
+            }
+            ByteBuffer header = read(channel, 0, ColumnarExporter.MAGIC.length + 1);
+            ByteBuffer trailer = read(channel, size - trailerLength, trailerLength);
+            int footerLength = trailer.getInt();
+            if (!hasMagic(header) || !hasMagic(trailer) || footerLength < 0
+                    || footerLength > size - trailerLength) {
+                throw new IOException("Not a columnar export file: " + filePath);
+            }
+            int version = header.get();
+            if (version != ColumnarExporter.VERSION) {
+                throw new IOException("Unsupported columnar export version " + version);
+            }
+
+            ByteBuffer footer = read(channel, size - trailerLength - footerLength, footerLength);
+            String table = readString(footer);
+            int columnCount = footer.getInt();
+            String[] names = new String[columnCount];
+            ColumnType[] types = new ColumnType[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                names[c] = readString(footer);
+                types[c] = ColumnType.values()[footer.get()];
+            }
+            int groupCount = footer.getInt();
+            int[] rows = new int[groupCount];
+            long[][] chunks = new long[groupCount][columnCount * 4];
+            for (int g = 0; g < groupCount; g++) {
+                rows[g] = footer.getInt();
+                for (int c = 0; c < columnCount; c++) {
+                    chunks[g][c * 4] = footer.getLong();
+                    chunks[g][c * 4 + 1] = footer.getInt();
+                    if (types[c].isNumeric()) {
+                        chunks[g][c * 4 + 2] = footer.getLong();
+                        chunks[g][c * 4 + 3] = footer.getLong();
+                    }
+                }
+            }
+            return new ColumnarReader(channel, table, names, types, rows, chunks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Name of the exported table: "patients", "doctors" or "appointments".
+     */
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+
+    /**
+     * @return The column's type, or null if the file has no such column
+     */
+    public ColumnType getColumnType(String column) {
+        int c = indexOf(column);
+        return c < 0 ? null : columnTypes[c];
+    }
+
+    public int getRowGroupCount() {
+        return groupRows.length;
+    }
+
+    public long getRowCount() {
+        long count = 0;
+        for (int rows : groupRows) {
+            count += rows;
+        }
+        return count;
+    }
+
+    /**
+     * Visit every row, reading only the given columns.
+     *
+     * @return Number of row groups read
+     */
+    public int scan(List<String> columns, RowVisitor visitor) throws IOException {
+        return scan(columns, null, null, null, visitor);
+    }
+
+    /**
+     * Visit the rows whose date column lies in a range, reading only the
+     * given columns (and the date column). Row groups whose statistics
+     * show no date in the range are skipped unread.
+     *
+     * @param columns Columns to read, in the order Row numbers them
+     * @param dateColumn DATE column to filter on, or null for all rows
+     * @param from First date to include, or null for no lower bound
+     * @param to Last date to include, or null for no upper bound
+     * @return Number of row groups read
+     * @throws IllegalArgumentException if a column does not exist or dateColumn is not a DATE column
+     */
+    public int scan(List<String> columns, String dateColumn, LocalDate from, LocalDate to,
+                    RowVisitor visitor) throws IOException {
+        int[] projection = new int[columns.size()];
+        ColumnType[] types = new ColumnType[columns.size()];
+        for (int i = 0; i < projection.length; i++) {
+            projection[i] = requireColumn(columns.get(i));
+            types[i] = columnTypes[projection[i]];
+        }
+        int filter = -1;
+        if (dateColumn != null) {
+            filter = requireColumn(dateColumn);
+            if (columnTypes[filter] != ColumnType.DATE) {
+                throw new IllegalArgumentException("Not a DATE column: " + dateColumn);
+            }
+        }
+        long low = from != null ? from.toEpochDay() : Long.MIN_VALUE + 1;
+        long high = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+
+        Row row = new Row(types);
+        long[] dates = null;
+        int groupsRead = 0;
+        for (int g = 0; g < groupRows.length; g++) {
+            if (filter >= 0) {
+                long min = groupChunks[g][filter * 4 + 2];
+                long max = groupChunks[g][filter * 4 + 3];
+                // An all-null chunk has min > max and never matches
+                if (min > max || max < low || min > high) {
+                    continue;
+                }
+            }
+            groupsRead++;
+
+            int rows = groupRows[g];
+            for (int i = 0; i < projection.length; i++) {
+                ByteBuffer chunk = readChunk(g, projection[i]);
+                if (types[i] == ColumnType.STRING) {
+                    row.dictionaries[i] = readDictionary(chunk);
+                    row.codes[i] = readCodes(chunk, rows, row.dictionaries[i].length, row.codes[i]);
+                } else {
+                    row.numbers[i] = readNumbers(chunk, types[i], rows, row.numbers[i]);
+                }
+            }
+            if (filter >= 0) {
+                dates = readNumbers(readChunk(g, filter), ColumnType.DATE, rows, dates);
+            }
+
+            for (int r = 0; r < rows; r++) {
+                if (dates != null && (dates[r] == ColumnarExporter.NULL || dates[r] < low || dates[r] > high)) {
+                    continue;
+                }
+                row.index = r;
+                visitor.visit(row);
+            }
+        }
+        return groupsRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOf(String column) {
+        for (int c = 0; c < columnNames.length; c++) {
+            if (columnNames[c].equals(column)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private int requireColumn(String column) {
+        int c = indexOf(column);
+        if (c < 0) {
+            throw new IllegalArgumentException("No column " + column + " in " + table);
+        }
+        return c;
+    }
+
+    private ByteBuffer readChunk(int group, int column) throws IOException {
+        long[] chunks = groupChunks[group];
+        return read(channel, chunks[column * 4], (int) chunks[column * 4 + 1]);
+    }
+
+    private static long[] readNumbers(ByteBuffer chunk, ColumnType type, int rows, long[] reuse) {
+        long[] values = reuse != null && reuse.length >= rows ? reuse : new long[rows];
+        for (int r = 0; r < rows; r++) {
+            switch (type) {
+                case TIMESTAMP:
+                    values[r] = chunk.getLong();
+                    break;
+                case BOOLEAN: {
+                    byte value = chunk.get();
+                    values[r] = value < 0 ? ColumnarExporter.NULL : value;
+                    break;
+                }
+                default: {
+                    int value = chunk.getInt();
+                    values[r] = value == Integer.MIN_VALUE ? ColumnarExporter.NULL : value;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String[] readDictionary(ByteBuffer chunk) {
+        String[] entries = new String[chunk.getInt()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = readString(chunk);
+        }
+        return entries;
+    }
+
+    private static int[] readCodes(ByteBuffer chunk, int rows, int dictionarySize, int[] reuse) {
+        int[] codes = reuse != null && reuse.length >= rows ? reuse : new int[rows];
+        int width = ColumnarExporter.codeWidth(dictionarySize);
+        for (int r = 0; r < rows; r++) {
+            if (width == 1) {
+                codes[r] = chunk.get() & 0xFF;
+            } else if (width == 2) {
+                codes[r] = chunk.getShort() & 0xFFFF;
+            } else {
+                codes[r] = chunk.getInt();
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Read a string written as its UTF-8 length followed by the bytes.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                                  StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (byte b : ColumnarExporter.MAGIC) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read a range of the file into a heap buffer positioned at its start.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of columnar export file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -1,159 +1,587 @@
 package com.clinicapp.io;
 
 import com.clinicapp.model.Appointment;
+import com.clinicapp.model.DateTimeCodec;
 import com.clinicapp.model.Doctor;
 import com.clinicapp.model.Patient;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.DoctorManager;
+import com.clinicapp.service.PatientManager;
 import com.opencsv.CSVWriter;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
+/**
+ * CsvExporter writes patients, doctors and appointments to CSV files in
+ * the exports directory. Records are taken from an iterator or stream and
+ * written one at a time through a large buffer on a file channel, so an
+ * export never copies the data into an intermediate list and its memory use
+ * does not depend on the number of records.
+ *
+ * A file name ending in ".gz" is written gzip-compressed; compression runs
+ * on its own thread so it overlaps with row formatting.
+ *
+ * The export*Changes methods write only the records created, modified or
+ * deleted since the previous such export, using the managers' modification
+ * sequence numbers. The sequence number an export reached is saved in a
+ * watermark file beside it and read back by the next export.
+ *
+ * The overloads taking a list and a ProgressListener export a snapshot with
+ * progress reporting and cancellation, for exports run off the event
+ * dispatch thread.
+ */
 public class CsvExporter {
     private static final String EXPORT_DIRECTORY = "exports/";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    public static final String COMPRESSED_EXTENSION = ".gz";
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Extra last column of a change export: UPSERT or DELETE
+    private static final String CHANGE_COLUMN = "Change";
+    private static final String CHANGE_UPSERT = "UPSERT";
+    private static final String CHANGE_DELETE = "DELETE";
+    
+    // Keys of the watermark properties file
+    private static final String WATERMARK_JOURNAL = "journal";
+    private static final String WATERMARK_SEQUENCE = "sequence";
+    private static final String WATERMARK_PREVIOUS = "previousSequence";
+    private static final String WATERMARK_FILE = "file";
     
-    public static String exportPatients(List<Patient> patients) throws IOException {
-        String fileName = EXPORT_DIRECTORY + "patients_" + 
-                         LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + 
+    // Records written between progress reports and cancellation checks
+    private static final int PROGRESS_INTERVAL = 1024;
+    
+    // Characters buffered before each write to the file channel
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final String[] PATIENT_HEADER = {
+        "ID", "Name", "Date of Birth", "Age", "Gender",
+        "Phone Number", "Email", "Address", "Blood Type", "Allergies"
+    };
+
+    private static final String[] DOCTOR_HEADER = {
+        "ID", "Name", "Specialization", "Phone Number",
+        "Email", "Available Days", "Start Time", "End Time", "Available"
+    };
+
+    static final String[] APPOINTMENT_HEADER = {
+        "ID", "Date", "Start Time", "End Time", "Patient ID", "Patient Name",
+        "Doctor ID", "Doctor Name", "Reason", "Status", "Notes", "Created At"
+    };
+
+    static final String[] DAILY_APPOINTMENT_HEADER = {
+        "ID", "Date", "Start Time", "End Time", "Patient ID", "Patient Name",
+        "Doctor ID", "Doctor Name", "Reason", "Status", "Notes"
+    };
+
+    public static String exportPatients(Iterable<Patient> patients) throws IOException {
+        return exportPatients(patients.iterator());
+    }
+
+    public static String exportPatients(Stream<Patient> patients) throws IOException {
+        return exportPatients(patients.iterator());
+    }
+
+    public static String exportPatients(Iterator<Patient> patients) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "patients_" +
+                         LocalDate.now().format(FILE_DATE_FORMATTER) +
                          "_" + System.currentTimeMillis() + ".csv";
-        
-        try (CSVWriter writer = new CSVWriter(new FileWriter(fileName))) {
-            String[] header = {
-                "ID", "Name", "Date of Birth", "Age", "Gender", 
-                "Phone Number", "Email", "Address", "Blood Type", "Allergies"
-            };
-            writer.writeNext(header);
-            
-            for (Patient patient : patients) {
-                String[] data = {
-                    String.valueOf(patient.getId()),
-                    patient.getName(),
-                    patient.getDateOfBirth().format(DATE_FORMATTER),
-                    String.valueOf(patient.getAge()),
-                    patient.getGender(),
-                    patient.getPhoneNumber(),
-                    patient.getEmail() != null ? patient.getEmail() : "",
-                    patient.getAddress(),
-                    patient.getBloodType() != null ? patient.getBloodType() : "",
-                    patient.getAllergies() != null ? patient.getAllergies() : ""
-                };
-                writer.writeNext(data);
+        return exportPatients(patients, fileName);
+    }
+
+    /**
+     * Export patients to a given file, gzip-compressed if it ends in ".gz".
+     */
+    public static String exportPatients(Iterator<Patient> patients, String fileName) throws IOException {
+        try (CSVWriter writer = new CSVWriter(openWriter(fileName))) {
+            writer.writeNext(PATIENT_HEADER);
+
+            String[] data = new String[PATIENT_HEADER.length];
+            while (patients.hasNext()) {
+                writer.writeNext(patientRow(patients.next(), data));
             }
+            checkWritten(writer, fileName);
         }
-        
+
         return fileName;
     }
-    
-    public static String exportDoctors(List<Doctor> doctors) throws IOException {
-        String fileName = EXPORT_DIRECTORY + "doctors_" + 
-                         LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + 
+
+    /**
+     * Export a snapshot of patients, e.g. from getAllPatients(), reporting
+     * progress as rows are written. Meant to run on a background thread.
+     * 
+     * @return Path of the written file
+     * @throws CancellationException if the listener cancels; the partial file is deleted
+     */
+    public static String exportPatients(List<Patient> patients, ProgressListener listener) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "patients_" +
+                         LocalDate.now().format(FILE_DATE_FORMATTER) +
                          "_" + System.currentTimeMillis() + ".csv";
-        
-        try (CSVWriter writer = new CSVWriter(new FileWriter(fileName))) {
-            String[] header = {
-                "ID", "Name", "Specialization", "Phone Number", 
-                "Email", "Available Days", "Start Time", "End Time", "Available"
-            };
-            writer.writeNext(header);
-            
-            for (Doctor doctor : doctors) {
-                String availableDays = doctor.getAvailableDays() != null ? 
-                                      String.join(";", doctor.getAvailableDays()) : "";
-                String[] data = {
-                    String.valueOf(doctor.getId()),
-                    doctor.getName(),
-                    doctor.getSpecialization(),
-                    doctor.getPhoneNumber(),
-                    doctor.getEmail() != null ? doctor.getEmail() : "",
-                    availableDays,
-                    doctor.getStartTime() != null ? doctor.getStartTime() : "",
-                    doctor.getEndTime() != null ? doctor.getEndTime() : "",
-                    String.valueOf(doctor.isAvailable())
-                };
-                writer.writeNext(data);
+        return exportWithProgress(patients, listener, fileName, rows -> exportPatients(rows, fileName));
+    }
+
+    public static String exportDoctors(Iterable<Doctor> doctors) throws IOException {
+        return exportDoctors(doctors.iterator());
+    }
+
+    public static String exportDoctors(Stream<Doctor> doctors) throws IOException {
+        return exportDoctors(doctors.iterator());
+    }
+
+    public static String exportDoctors(Iterator<Doctor> doctors) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "doctors_" +
+                         LocalDate.now().format(FILE_DATE_FORMATTER) +
+                         "_" + System.currentTimeMillis() + ".csv";
+        return exportDoctors(doctors, fileName);
+    }
+
+    /**
+     * Export doctors to a given file, gzip-compressed if it ends in ".gz".
+     */
+    public static String exportDoctors(Iterator<Doctor> doctors, String fileName) throws IOException {
+        try (CSVWriter writer = new CSVWriter(openWriter(fileName))) {
+            writer.writeNext(DOCTOR_HEADER);
+
+            String[] data = new String[DOCTOR_HEADER.length];
+            while (doctors.hasNext()) {
+                writer.writeNext(doctorRow(doctors.next(), data));
             }
+            checkWritten(writer, fileName);
         }
-        
+
         return fileName;
     }
-    
-    public static String exportAppointments(List<Appointment> appointments) throws IOException {
-        String fileName = EXPORT_DIRECTORY + "appointments_" + 
-                         LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + 
+
+    /**
+     * Export a snapshot of doctors with progress reporting; see
+     * exportPatients(List, ProgressListener).
+     */
+    public static String exportDoctors(List<Doctor> doctors, ProgressListener listener) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "doctors_" +
+                         LocalDate.now().format(FILE_DATE_FORMATTER) +
                          "_" + System.currentTimeMillis() + ".csv";
-        
-        try (CSVWriter writer = new CSVWriter(new FileWriter(fileName))) {
-            String[] header = {
-                "ID", "Date", "Start Time", "End Time", "Patient ID", "Patient Name", 
-                "Doctor ID", "Doctor Name", "Reason", "Status", "Notes", "Created At"
-            };
-            writer.writeNext(header);
-            
-            for (Appointment appointment : appointments) {
-                String[] data = {
-                    String.valueOf(appointment.getId()),
-                    appointment.getAppointmentDate().format(DATE_FORMATTER),
-                    appointment.getStartTime().format(TIME_FORMATTER),
-                    appointment.getEndTime().format(TIME_FORMATTER),
-                    String.valueOf(appointment.getPatient().getId()),
-                    appointment.getPatient().getName(),
-                    String.valueOf(appointment.getDoctor().getId()),
-                    appointment.getDoctor().getName(),
-                    appointment.getReason(),
-                    appointment.getStatus().toString(),
-                    appointment.getNotes() != null ? appointment.getNotes() : "",
-                    appointment.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
-                };
-                writer.writeNext(data);
+        return exportWithProgress(doctors, listener, fileName, rows -> exportDoctors(rows, fileName));
+    }
+
+    public static String exportAppointments(Iterable<Appointment> appointments) throws IOException {
+        return exportAppointments(appointments.iterator(), appointment -> true);
+    }
+
+    public static String exportAppointments(Stream<Appointment> appointments) throws IOException {
+        return exportAppointments(appointments.iterator(), appointment -> true);
+    }
+
+    /**
+     * Export the appointments accepted by a filter. The filter is applied
+     * while writing, so rejected appointments are never copied.
+     */
+    public static String exportAppointments(Iterator<Appointment> appointments,
+                                            Predicate<Appointment> filter) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "appointments_" +
+                         LocalDate.now().format(FILE_DATE_FORMATTER) +
+                         "_" + System.currentTimeMillis() + ".csv";
+        return exportAppointments(appointments, filter, fileName);
+    }
+
+    /**
+     * Export the appointments accepted by a filter to a given file,
+     * gzip-compressed if it ends in ".gz".
+     */
+    public static String exportAppointments(Iterator<Appointment> appointments, Predicate<Appointment> filter,
+                                            String fileName) throws IOException {
+        try (CSVWriter writer = new CSVWriter(openWriter(fileName))) {
+            writer.writeNext(APPOINTMENT_HEADER);
+
+            String[] data = new String[APPOINTMENT_HEADER.length];
+            while (appointments.hasNext()) {
+                Appointment appointment = appointments.next();
+                if (filter.test(appointment)) {
+                    writer.writeNext(appointmentRow(appointment, data, true));
+                }
             }
+            checkWritten(writer, fileName);
         }
-        
+
         return fileName;
     }
-    
-    public static String exportAppointmentsByDate(List<Appointment> appointments, LocalDate date) throws IOException {
-        String fileName = EXPORT_DIRECTORY + "appointments_" + 
-                         date.format(DateTimeFormatter.ofPattern("yyyyMMdd")) + 
+
+    /**
+     * Export a snapshot of appointments with progress reporting; see
+     * exportPatients(List, ProgressListener).
+     */
+    public static String exportAppointments(List<Appointment> appointments,
+                                            ProgressListener listener) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "appointments_" +
+                         LocalDate.now().format(FILE_DATE_FORMATTER) +
                          "_" + System.currentTimeMillis() + ".csv";
-        
-        List<Appointment> filteredAppointments = new ArrayList<>();
-        for (Appointment appointment : appointments) {
-            if (appointment.getAppointmentDate().equals(date)) {
-                filteredAppointments.add(appointment);
+        return exportWithProgress(appointments, listener, fileName,
+                                  rows -> exportAppointments(rows, appointment -> true, fileName));
+    }
+
+    public static String exportAppointmentsByDate(Iterable<Appointment> appointments, LocalDate date) throws IOException {
+        return exportAppointmentsByDate(appointments.iterator(), date);
+    }
+
+    public static String exportAppointmentsByDate(Stream<Appointment> appointments, LocalDate date) throws IOException {
+        return exportAppointmentsByDate(appointments.iterator(), date);
+    }
+
+    public static String exportAppointmentsByDate(Iterator<Appointment> appointments, LocalDate date) throws IOException {
+        String fileName = EXPORT_DIRECTORY + "appointments_" +
+                         date.format(FILE_DATE_FORMATTER) +
+                         "_" + System.currentTimeMillis() + ".csv";
+        return exportAppointmentsByDate(appointments, date, fileName);
+    }
+
+    /**
+     * Export one day's appointments to a given file, gzip-compressed if it ends in ".gz".
+     */
+    public static String exportAppointmentsByDate(Iterator<Appointment> appointments, LocalDate date,
+                                                  String fileName) throws IOException {
+        try (CSVWriter writer = new CSVWriter(openWriter(fileName))) {
+            writer.writeNext(DAILY_APPOINTMENT_HEADER);
+
+            String[] data = new String[DAILY_APPOINTMENT_HEADER.length];
+            while (appointments.hasNext()) {
+                Appointment appointment = appointments.next();
+                if (appointment.getAppointmentDate().equals(date)) {
+                    writer.writeNext(appointmentRow(appointment, data, false));
+                }
             }
+            checkWritten(writer, fileName);
+        }
+
+        return fileName;
+    }
+
+    public static String exportPatientChanges(PatientManager patientManager) throws IOException {
+        return exportPatientChanges(patientManager, null, EXPORT_DIRECTORY + "patients.watermark");
+    }
+    
+    /**
+     * Export the patients created, modified or deleted since the watermark
+     * saved by the previous change export, then save the new watermark.
+     * 
+     * @param fileName Output file, or null for a generated name
+     * @param watermarkFile File holding the watermark between exports
+     * @return Path of the change file
+     */
+    public static String exportPatientChanges(PatientManager patientManager, String fileName,
+                                              String watermarkFile) throws IOException {
+        String journalId = patientManager.getChangeJournalId();
+        long since = readWatermark(watermarkFile, journalId);
+        return exportChanges("patients", PATIENT_HEADER, CsvExporter::patientRow,
+                             patientManager.streamPatientsChangedSince(since).iterator(),
+                             patientManager.getPatientsDeletedSince(since),
+                             journalId, since, patientManager.getChangeSequence(), fileName, watermarkFile);
+    }
+    
+    public static String exportDoctorChanges(DoctorManager doctorManager) throws IOException {
+        return exportDoctorChanges(doctorManager, null, EXPORT_DIRECTORY + "doctors.watermark");
+    }
+    
+    /**
+     * Export the doctors created, modified or deleted since the watermark
+     * saved by the previous change export, then save the new watermark.
+     * 
+     * @param fileName Output file, or null for a generated name
+     * @param watermarkFile File holding the watermark between exports
+     * @return Path of the change file
+     */
+    public static String exportDoctorChanges(DoctorManager doctorManager, String fileName,
+                                             String watermarkFile) throws IOException {
+        String journalId = doctorManager.getChangeJournalId();
+        long since = readWatermark(watermarkFile, journalId);
+        return exportChanges("doctors", DOCTOR_HEADER, CsvExporter::doctorRow,
+                             doctorManager.streamDoctorsChangedSince(since).iterator(),
+                             doctorManager.getDoctorsDeletedSince(since),
+                             journalId, since, doctorManager.getChangeSequence(), fileName, watermarkFile);
+    }
+    
+    public static String exportAppointmentChanges(AppointmentManager appointmentManager) throws IOException {
+        return exportAppointmentChanges(appointmentManager, null, EXPORT_DIRECTORY + "appointments.watermark");
+    }
+    
+    /**
+     * Export the appointments created, modified or deleted (including
+     * archived) since the watermark saved by the previous change export,
+     * then save the new watermark.
+     * 
+     * @param fileName Output file, or null for a generated name
+     * @param watermarkFile File holding the watermark between exports
+     * @return Path of the change file
+     */
+    public static String exportAppointmentChanges(AppointmentManager appointmentManager, String fileName,
+                                                  String watermarkFile) throws IOException {
+        String journalId = appointmentManager.getChangeJournalId();
+        long since = readWatermark(watermarkFile, journalId);
+        return exportChanges("appointments", APPOINTMENT_HEADER,
+                             (appointment, data) -> appointmentRow(appointment, data, true),
+                             appointmentManager.streamAppointmentsChangedSince(since).iterator(),
+                             appointmentManager.getAppointmentsDeletedSince(since),
+                             journalId, since, appointmentManager.getChangeSequence(), fileName, watermarkFile);
+    }
+    
+    /**
+     * Write a change file: the full row of each changed record followed by
+     * the ID of each deleted one, with a last column saying which. When the
+     * watermark was missing or came from another journal (since == 0) every
+     * record is included and the file is named as a snapshot, so the reader
+     * knows to replace rather than merge. The watermark is saved only after
+     * the file is complete, so a failed export is simply repeated next time.
+     */
+    private static <T> String exportChanges(String kind, String[] header, BiFunction<T, String[], String[]> rowFiller,
+                                            Iterator<T> changed, List<Integer> deleted,
+                                            String journalId, long since, long upTo,
+                                            String fileName, String watermarkFile) throws IOException {
+        if (fileName == null) {
+            fileName = EXPORT_DIRECTORY + kind + (since == 0 ? "_snapshot_" : "_changes_") +
+                       LocalDate.now().format(FILE_DATE_FORMATTER) +
+                       "_" + System.currentTimeMillis() + ".csv";
         }
         
-        try (CSVWriter writer = new CSVWriter(new FileWriter(fileName))) {
-            String[] header = {
-                "ID", "Date", "Start Time", "End Time", "Patient ID", "Patient Name", 
-                "Doctor ID", "Doctor Name", "Reason", "Status", "Notes"
-            };
-            writer.writeNext(header);
+        try (CSVWriter writer = new CSVWriter(openWriter(fileName))) {
+            String[] changeHeader = Arrays.copyOf(header, header.length + 1);
+            changeHeader[header.length] = CHANGE_COLUMN;
+            writer.writeNext(changeHeader);
             
-            for (Appointment appointment : filteredAppointments) {
-                String[] data = {
-                    String.valueOf(appointment.getId()),
-                    appointment.getAppointmentDate().format(DATE_FORMATTER),
-                    appointment.getStartTime().format(TIME_FORMATTER),
-                    appointment.getEndTime().format(TIME_FORMATTER),
-                    String.valueOf(appointment.getPatient().getId()),
-                    appointment.getPatient().getName(),
-                    String.valueOf(appointment.getDoctor().getId()),
-                    appointment.getDoctor().getName(),
-                    appointment.getReason(),
-                    appointment.getStatus().toString(),
-                    appointment.getNotes() != null ? appointment.getNotes() : ""
-                };
+            String[] data = new String[changeHeader.length];
+            while (changed.hasNext()) {
+                rowFiller.apply(changed.next(), data);
+                data[header.length] = CHANGE_UPSERT;
+                writer.writeNext(data);
+            }
+            Arrays.fill(data, "");
+            data[header.length] = CHANGE_DELETE;
+            for (int id : deleted) {
+                data[0] = String.valueOf(id);
                 writer.writeNext(data);
             }
+            checkWritten(writer, fileName);
         }
         
+        writeWatermark(watermarkFile, journalId, since, upTo, fileName);
         return fileName;
     }
+    
+    /**
+     * Writes records taken from an iterator to a file.
+     */
+    private interface RowExport<T> {
+        String write(Iterator<T> records) throws IOException;
+    }
+    
+    /**
+     * Run an export over a list, telling the listener how many records have
+     * been written every PROGRESS_INTERVAL records and checking for
+     * cancellation at the same points.
+     */
+    private static <T> String exportWithProgress(List<T> records, ProgressListener listener, String fileName,
+                                                 RowExport<T> export) throws IOException {
+        int total = records.size();
+        Iterator<T> source = records.iterator();
+        Iterator<T> tracked = new Iterator<T>() {
+            private long written;
+            
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+            
+            @Override
+            public T next() {
+                if (written % PROGRESS_INTERVAL == 0) {
+                    if (listener.isCancelled()) {
+                        throw new CancellationException("Export cancelled");
+                    }
+                    listener.onProgress(written, total > 0 ? (double) written / total : -1);
+                }
+                written++;
+                return source.next();
+            }
+        };
+        
+        try {
+            String written = export.write(tracked);
+            listener.onProgress(total, 1.0);
+            return written;
+        } catch (CancellationException e) {
+            Files.deleteIfExists(Paths.get(fileName));
+            throw e;
+        }
+    }
+    
+    /**
+     * Read the sequence number saved by the previous change export.
+     * 
+     * @return The saved sequence, or 0 if there is none or it belongs to
+     *         another journal (e.g. one from before the application restarted)
+     */
+    private static long readWatermark(String watermarkFile, String journalId) throws IOException {
+        Path path = Paths.get(watermarkFile);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        Properties watermark = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            watermark.load(in);
+        }
+        if (!journalId.equals(watermark.getProperty(WATERMARK_JOURNAL))) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(watermark.getProperty(WATERMARK_SEQUENCE, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Save the watermark through a temporary file and an atomic rename, so
+     * a crash never leaves a half-written watermark.
+     */
+    private static void writeWatermark(String watermarkFile, String journalId, long since, long upTo,
+                                       String exportFile) throws IOException {
+        Path path = Paths.get(watermarkFile);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Properties watermark = new Properties();
+        watermark.setProperty(WATERMARK_JOURNAL, journalId);
+        watermark.setProperty(WATERMARK_SEQUENCE, String.valueOf(upTo));
+        watermark.setProperty(WATERMARK_PREVIOUS, String.valueOf(since));
+        watermark.setProperty(WATERMARK_FILE, exportFile);
+        
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            watermark.store(out, "Last change export");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Fill a reusable row array with a patient's fields.
+     */
+    private static String[] patientRow(Patient patient, String[] data) {
+        data[0] = String.valueOf(patient.getId());
+        data[1] = patient.getName();
+        data[2] = DateTimeCodec.formatDate(patient.getDateOfBirth());
+        data[3] = String.valueOf(patient.getAge());
+        data[4] = patient.getGender();
+        data[5] = patient.getPhoneNumber();
+        data[6] = patient.getEmail() != null ? patient.getEmail() : "";
+        data[7] = patient.getAddress();
+        data[8] = patient.getBloodType() != null ? patient.getBloodType() : "";
+        data[9] = patient.getAllergies() != null ? patient.getAllergies() : "";
+        return data;
+    }
+
+    /**
+     * Fill a reusable row array with a doctor's fields.
+     */
+    private static String[] doctorRow(Doctor doctor, String[] data) {
+        data[0] = String.valueOf(doctor.getId());
+        data[1] = doctor.getName();
+        data[2] = doctor.getSpecialization();
+        data[3] = doctor.getPhoneNumber();
+        data[4] = doctor.getEmail() != null ? doctor.getEmail() : "";
+        data[5] = doctor.getAvailableDays() != null ? String.join(";", doctor.getAvailableDays()) : "";
+        data[6] = doctor.getStartTime() != null ? doctor.getStartTime() : "";
+        data[7] = doctor.getEndTime() != null ? doctor.getEndTime() : "";
+        data[8] = String.valueOf(doctor.isAvailable());
+        return data;
+    }
+
+    /**
+     * Fill a reusable row array with an appointment's fields.
+     *
+     * @param withCreatedAt Whether the row has the trailing Created At column
+     */
+    static String[] appointmentRow(Appointment appointment, String[] data, boolean withCreatedAt) {
+        data[0] = String.valueOf(appointment.getId());
+        data[1] = DateTimeCodec.formatDate(appointment.getAppointmentDate());
+        data[2] = DateTimeCodec.formatTime(appointment.getStartTime());
+        data[3] = DateTimeCodec.formatTime(appointment.getEndTime());
+        data[4] = String.valueOf(appointment.getPatient().getId());
+        data[5] = appointment.getPatient().getName();
+        data[6] = String.valueOf(appointment.getDoctor().getId());
+        data[7] = appointment.getDoctor().getName();
+        data[8] = appointment.getReason();
+        data[9] = appointment.getStatus().toString();
+        data[10] = appointment.getNotes() != null ? appointment.getNotes() : "";
+        if (withCreatedAt) {
+            data[11] = DateTimeCodec.formatTimestamp(appointment.getCreatedAt());
+        }
+        return data;
+    }
+
+    /**
+     * Open an export file for writing through a large buffer on a file channel.
+     * Names ending in ".gz" are compressed on a background thread.
+     */
+    static Writer openWriter(String fileName) throws IOException {
+        return openWriter(fileName, false, BUFFER_SIZE);
+    }
+
+    /**
+     * Open an export file as openWriter(String) does, optionally appending
+     * to it and with a given buffer size. Appending to a ".gz" file adds a
+     * new gzip member, which gzip readers decompress as a continuation of
+     * the previous ones.
+     */
+    static Writer openWriter(String fileName, boolean append, int bufferSize) throws IOException {
+        Path path = Paths.get(fileName);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               append ? StandardOpenOption.APPEND
+                                                      : StandardOpenOption.TRUNCATE_EXISTING);
+        if (isCompressed(fileName)) {
+            return new BufferedWriter(new OutputStreamWriter(
+                new AsyncGzipOutputStream(Channels.newOutputStream(channel)), StandardCharsets.UTF_8), bufferSize);
+        }
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), bufferSize),
+                                  bufferSize);
+    }
+
+    /**
+     * Check whether a file name selects gzip compression.
+     */
+    public static boolean isCompressed(String fileName) {
+        return fileName.regionMatches(true, fileName.length() - COMPRESSED_EXTENSION.length(),
+                                      COMPRESSED_EXTENSION, 0, COMPRESSED_EXTENSION.length());
+    }
+
+    /**
+     * CSVWriter swallows write errors; surface them so a full disk is not
+     * reported as a successful export.
+     */
+    static void checkWritten(CSVWriter writer, String fileName) throws IOException {
+        if (writer.checkError()) {
+            throw new IOException("Failed writing " + fileName);
+        }
+    }
 }
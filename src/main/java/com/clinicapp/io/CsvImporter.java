@@ -4,217 +4,701 @@ import com.clinicapp.model.Appointment;
 import com.clinicapp.model.Appointment.AppointmentStatus;
 import com.clinicapp.model.Doctor;
 import com.clinicapp.model.Patient;
+import com.clinicapp.model.ValueDictionary;
+import com.clinicapp.service.AppointmentImportSession;
 import com.clinicapp.service.AppointmentManager;
 import com.clinicapp.service.DoctorManager;
 import com.clinicapp.service.PatientManager;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
+import com.clinicapp.util.InputValidator;
 
-import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
 
+/**
+ * CsvImporter loads patients, doctors and appointments from CSV files.
+ * Files are streamed row by row: rows are read into a batch of a
+ * configurable size, the batch is applied to the manager, and the buffer is
+ * reused, so memory use does not grow with the size of the file.
+ * Files whose name ends in ".gz" are decompressed while they are read.
+ * 
+ * Rows are split by CsvTokenizer into reusable CsvRecords, and numbers,
+ * dates, times, statuses and dictionary values are parsed directly from
+ * the record's characters, so only the strings kept by the new records
+ * are allocated.
+ * 
+ * The overloads taking a ProgressListener and an Executor are meant for
+ * background imports: the file is read and parsed on the calling thread,
+ * batches are applied wherever the executor runs them, and the listener
+ * sees the progress after each batch and can cancel between batches.
+ * 
+ * The import*Atomically methods import all-or-nothing: rows go into a
+ * staging copy of the manager, which replaces the manager's contents in
+ * one step only if every row was accepted.
+ */
 public class CsvImporter {
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    // Cached because values() copies the array on every call
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+    
+    // Bytes buffered per read from the file (and the gzip stream)
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    
+    // Rows read before each batch is applied to the managers
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    // Messages kept per list in an ImportResult; counts stay exact beyond this
+    public static final int MAX_REPORTED_MESSAGES = 1000;
     
     public static class ImportResult {
         public int successCount;
         public int errorCount;
+        public int duplicateCount;
         public List<String> errors;
+        public List<String> duplicates;
+        // Set by an all-or-nothing import that imported nothing
+        public boolean rolledBack;
         
         public ImportResult() {
             this.successCount = 0;
             this.errorCount = 0;
+            this.duplicateCount = 0;
             this.errors = new ArrayList<>();
+            this.duplicates = new ArrayList<>();
+        }
+        
+        /**
+         * Count a failed row and keep its message, up to MAX_REPORTED_MESSAGES.
+         */
+        void addError(String message) {
+            errorCount++;
+            addMessage(errors, message);
+        }
+        
+        /**
+         * Keep a duplicate report, up to MAX_REPORTED_MESSAGES.
+         */
+        void addDuplicate(String message) {
+            addMessage(duplicates, message);
+        }
+        
+        private static void addMessage(List<String> messages, String message) {
+            if (messages.size() < MAX_REPORTED_MESSAGES) {
+                messages.add(message);
+            } else if (messages.size() == MAX_REPORTED_MESSAGES) {
+                messages.add("... further messages omitted");
+            }
         }
     }
     
+    /**
+     * Turns a CSV record into a parsed row. Parsing touches no manager, so
+     * parsers may run on several threads at once. The record may be reused
+     * once parse returns.
+     */
+    interface RowParser<T> {
+        T parse(CsvRecord record) throws Exception;
+    }
+    
+    /**
+     * Applies a parsed row to the managers. Always called on one thread, in file order.
+     */
+    interface RowApplier<T> {
+        void apply(T row, int rowNumber, ImportResult result) throws Exception;
+    }
+    
+    /**
+     * A row problem reported with its message as-is rather than as an import error.
+     */
+    static class InvalidRowException extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        InvalidRowException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * How patient rows that duplicate an existing patient are handled.
+     * Duplicates are detected with PatientManager.findDuplicate (same name and
+     * date of birth, or same phone and email), one hash lookup per row.
+     */
+    public enum DuplicatePolicy {
+        ALLOW,   // Import every row, even duplicates
+        SKIP,    // Skip duplicate rows, only counting them
+        MERGE,   // Update the existing patient with the row's non-empty fields
+        REPORT   // Skip duplicate rows and list each one in ImportResult.duplicates
+    }
+    
+    /**
+     * Parsed patient row.
+     */
+    static class PatientRow {
+        String name;
+        LocalDate dateOfBirth;
+        String gender;
+        String phone;
+        String email;
+        String address;
+        String bloodType;
+        String allergies;
+    }
+    
+    /**
+     * Parsed doctor row.
+     */
+    static class DoctorRow {
+        String name;
+        String specialization;
+        String phone;
+        String email;
+        List<String> availableDays;
+        String startTime;
+        String endTime;
+    }
+    
+    /**
+     * Parsed appointment row.
+     */
+    static class AppointmentRow {
+        LocalDate date;
+        LocalTime startTime;
+        LocalTime endTime;
+        int patientId;
+        int doctorId;
+        String reason;
+        AppointmentStatus status; // null to keep the default
+        String notes;
+    }
+    
     public static ImportResult importPatients(String filePath, PatientManager patientManager) {
+        return importPatients(filePath, patientManager, DuplicatePolicy.ALLOW);
+    }
+    
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy) {
+        return importPatients(filePath, patientManager, duplicatePolicy, DEFAULT_BATCH_SIZE);
+    }
+    
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy, int batchSize) {
+        return importPatients(filePath, patientManager, duplicatePolicy, batchSize,
+                              ProgressListener.NONE, Runnable::run);
+    }
+    
+    /**
+     * Import patients with progress reporting and cancellation, e.g. from a
+     * background thread. Rows are parsed on the calling thread; each batch
+     * is applied to the manager by applyExecutor while the next is parsed.
+     * 
+     * @param listener Told the rows applied after each batch; polled for cancellation
+     * @param applyExecutor Runs each batch's apply step, in order, e.g.
+     *                      SwingUtilities::invokeLater to keep the manager on the EDT
+     * @return Import result; rows applied before a cancellation stay imported
+     */
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy, int batchSize,
+                                              ProgressListener listener, Executor applyExecutor) {
+        ImportResult result = new ImportResult();
+        readInBatches(filePath, batchSize, CsvImporter::parsePatient,
+                      patientApplier(patientManager, duplicatePolicy), "patient", result, listener, applyExecutor);
+        return result;
+    }
+    
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager) {
+        return importDoctors(filePath, doctorManager, DEFAULT_BATCH_SIZE);
+    }
+    
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager, int batchSize) {
+        return importDoctors(filePath, doctorManager, batchSize, ProgressListener.NONE, Runnable::run);
+    }
+    
+    /**
+     * Import doctors with progress reporting and cancellation; see
+     * importPatients(String, PatientManager, DuplicatePolicy, int, ProgressListener, Executor).
+     */
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager, int batchSize,
+                                             ProgressListener listener, Executor applyExecutor) {
         ImportResult result = new ImportResult();
+        readInBatches(filePath, batchSize, CsvImporter::parseDoctor, doctorApplier(doctorManager), "doctor",
+                      result, listener, applyExecutor);
+        return result;
+    }
+    
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager) {
+        return importAppointments(filePath, appointmentManager, patientManager, doctorManager, DEFAULT_BATCH_SIZE);
+    }
+    
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager,
+                                                  int batchSize) {
+        return importAppointments(filePath, appointmentManager, patientManager, doctorManager, batchSize,
+                                  ProgressListener.NONE, Runnable::run);
+    }
+    
+    /**
+     * Import appointments with progress reporting and cancellation; see
+     * importPatients(String, PatientManager, DuplicatePolicy, int, ProgressListener, Executor).
+     */
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager,
+                                                  int batchSize, ProgressListener listener,
+                                                  Executor applyExecutor) {
+        ImportResult result = new ImportResult();
+        readInBatches(filePath, batchSize, CsvImporter::parseAppointment,
+                      appointmentApplier(appointmentManager, patientManager, doctorManager), "appointment",
+                      result, listener, applyExecutor);
+        return result;
+    }
+    
+    public static ImportResult importPatientsAtomically(String filePath, PatientManager patientManager,
+                                                        DuplicatePolicy duplicatePolicy) {
+        return importPatientsAtomically(filePath, patientManager, duplicatePolicy,
+                                        ProgressListener.NONE, Runnable::run);
+    }
+    
+    /**
+     * Import patients all-or-nothing. Rows are added to a staging copy of
+     * the manager (PatientManager.stageImport) on the calling thread. If any
+     * row fails, the file cannot be read to the end or the import is
+     * cancelled, the copy is dropped and the manager is left untouched;
+     * otherwise publishExecutor swaps the copy in with publishImport, so
+     * readers see all of the file or none of it.
+     * 
+     * MERGE is refused: it updates existing patients, which the staging
+     * copy shares with the manager.
+     * 
+     * @param publishExecutor Runs the publish step, e.g. SwingUtilities::invokeLater
+     *                        when the manager belongs to the EDT
+     * @return Import result; if rolledBack is set, nothing was imported and
+     *         successCount is 0
+     */
+    public static ImportResult importPatientsAtomically(String filePath, PatientManager patientManager,
+                                                        DuplicatePolicy duplicatePolicy, ProgressListener listener,
+                                                        Executor publishExecutor) {
+        ImportResult result = new ImportResult();
+        if (duplicatePolicy == DuplicatePolicy.MERGE) {
+            result.errors.add("Duplicate policy MERGE is not supported by all-or-nothing imports");
+            result.rolledBack = true;
+            return result;
+        }
+        PatientManager staged = patientManager.stageImport();
+        readInBatches(filePath, DEFAULT_BATCH_SIZE, CsvImporter::parsePatient,
+                      patientApplier(staged, duplicatePolicy), "patient", result, listener, Runnable::run);
+        publishOrRollBack(result, () -> patientManager.publishImport(staged), "patients", publishExecutor);
+        return result;
+    }
+    
+    public static ImportResult importAppointmentsAtomically(String filePath, AppointmentManager appointmentManager,
+                                                            PatientManager patientManager,
+                                                            DoctorManager doctorManager) {
+        return importAppointmentsAtomically(filePath, appointmentManager, patientManager, doctorManager,
+                                            ProgressListener.NONE, Runnable::run);
+    }
+    
+    /**
+     * Import appointments all-or-nothing: every row is checked for working
+     * time and conflicts against the existing appointments and the rows
+     * before it in a staging copy (AppointmentManager.stageImport), and the
+     * copy is published only if every row was accepted; see
+     * importPatientsAtomically.
+     */
+    public static ImportResult importAppointmentsAtomically(String filePath, AppointmentManager appointmentManager,
+                                                            PatientManager patientManager,
+                                                            DoctorManager doctorManager, ProgressListener listener,
+                                                            Executor publishExecutor) {
+        ImportResult result = new ImportResult();
+        AppointmentManager staged = appointmentManager.stageImport();
+        readInBatches(filePath, DEFAULT_BATCH_SIZE, CsvImporter::parseAppointment,
+                      appointmentApplier(staged, patientManager, doctorManager), "appointment",
+                      result, listener, Runnable::run);
+        publishOrRollBack(result, () -> appointmentManager.publishImport(staged), "appointments",
+                          publishExecutor);
+        return result;
+    }
+    
+    static PatientRow parsePatient(CsvRecord record) throws Exception {
+        if (record.size() < 6) {
+            throw new InvalidRowException("Invalid record: insufficient columns");
+        }
         
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
-            
-            if (records.isEmpty()) {
-                result.errors.add("CSV file is empty");
-                return result;
-            }
-            
-            boolean firstRow = true;
-            for (String[] record : records) {
-                if (firstRow) {
-                    firstRow = false;
-                    continue;
-                }
-                
-                try {
-                    if (record.length < 6) {
-                        result.errors.add("Invalid record: insufficient columns");
-                        result.errorCount++;
-                        continue;
+        PatientRow row = new PatientRow();
+        row.name = record.getString(1);
+        row.dateOfBirth = record.getDate(2);
+        row.gender = normalizeGender(record, 4);
+        row.phone = record.getString(5);
+        row.email = record.size() > 6 && !record.isEmpty(6) ? record.getString(6) : null;
+        row.address = record.size() > 7 ? record.getString(7) : "";
+        row.bloodType = record.size() > 8 && !record.isEmpty(8) ? normalizeBloodType(record, 8) : null;
+        row.allergies = record.size() > 9 && !record.isEmpty(9) ? record.getString(9) : null;
+        return row;
+    }
+    
+    static RowApplier<PatientRow> patientApplier(PatientManager patientManager, DuplicatePolicy duplicatePolicy) {
+        return (row, rowNumber, result) -> {
+            if (duplicatePolicy != DuplicatePolicy.ALLOW) {
+                Patient existing = patientManager.findDuplicate(row.name, row.dateOfBirth, row.phone, row.email);
+                if (existing != null) {
+                    result.duplicateCount++;
+                    if (duplicatePolicy == DuplicatePolicy.MERGE) {
+                        patientManager.updatePatient(existing.getId(), null, null, row.gender, row.phone, row.email,
+                                                     row.address.isEmpty() ? null : row.address,
+                                                     row.bloodType, row.allergies);
+                        result.successCount++;
+                    } else if (duplicatePolicy == DuplicatePolicy.REPORT) {
+                        result.addDuplicate("Row " + rowNumber + " (" + row.name + ") duplicates patient ID "
+                                            + existing.getId());
                     }
-                    
-                    String name = record[1];
-                    LocalDate dob = LocalDate.parse(record[2], DATE_FORMATTER);
-                    String gender = record[4];
-                    String phone = record[5];
-                    String email = record.length > 6 && !record[6].isEmpty() ? record[6] : null;
-                    String address = record.length > 7 ? record[7] : "";
-                    String bloodType = record.length > 8 && !record[8].isEmpty() ? record[8] : null;
-                    String allergies = record.length > 9 && !record[9].isEmpty() ? record[9] : null;
-                    
-                    patientManager.addPatient(name, dob, gender, phone, email, address, bloodType, allergies);
-                    result.successCount++;
-                } catch (Exception e) {
-                    result.errors.add("Error importing patient: " + e.getMessage());
-                    result.errorCount++;
+                    return;
                 }
             }
-        } catch (IOException | CsvException e) {
-            result.errors.add("Error reading CSV file: " + e.getMessage());
+            
+            patientManager.addPatient(row.name, row.dateOfBirth, row.gender, row.phone, row.email,
+                                      row.address, row.bloodType, row.allergies);
+            result.successCount++;
+        };
+    }
+    
+    static DoctorRow parseDoctor(CsvRecord record) throws Exception {
+        if (record.size() < 4) {
+            throw new InvalidRowException("Invalid record: insufficient columns");
         }
         
-        return result;
+        DoctorRow row = new DoctorRow();
+        row.name = record.getString(1);
+        row.specialization = record.getCanonical(2, ValueDictionary.SPECIALIZATIONS);
+        row.phone = record.getString(3);
+        row.email = record.size() > 4 && !record.isEmpty(4) ? record.getString(4) : null;
+        if (record.size() > 5 && !record.isEmpty(5)) {
+            row.availableDays = record.getCanonicalList(5, ';', ValueDictionary.WEEKDAYS);
+        }
+        row.startTime = record.size() > 6 && !record.isEmpty(6) ? record.getString(6) : null;
+        row.endTime = record.size() > 7 && !record.isEmpty(7) ? record.getString(7) : null;
+        return row;
     }
     
-    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager) {
-        ImportResult result = new ImportResult();
+    static RowApplier<DoctorRow> doctorApplier(DoctorManager doctorManager) {
+        return (row, rowNumber, result) -> {
+            doctorManager.addDoctor(row.name, row.specialization, row.phone, row.email,
+                                    row.availableDays, row.startTime, row.endTime);
+            result.successCount++;
+        };
+    }
+    
+    static AppointmentRow parseAppointment(CsvRecord record) throws Exception {
+        if (record.size() < 9) {
+            throw new InvalidRowException("Invalid record: insufficient columns");
+        }
         
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
+        AppointmentRow row = new AppointmentRow();
+        row.date = record.getDate(1);
+        row.startTime = record.getTime(2);
+        row.endTime = record.getTime(3);
+        row.patientId = record.getInt(4);
+        row.doctorId = record.getInt(6);
+        row.reason = record.getString(8);
+        if (record.size() > 9) {
+            // Unknown statuses keep the default (null)
+            row.status = record.getEnum(9, STATUSES);
+        }
+        row.notes = record.size() > 10 && !record.isEmpty(10) ? record.getString(10) : null;
+        return row;
+    }
+    
+    static RowApplier<AppointmentRow> appointmentApplier(AppointmentManager appointmentManager,
+                                                         PatientManager patientManager,
+                                                         DoctorManager doctorManager) {
+        AppointmentImportSession session = appointmentManager.startImport();
+        return (row, rowNumber, result) -> {
+            Patient patient = patientManager.getPatientById(row.patientId);
+            Doctor doctor = doctorManager.getDoctorById(row.doctorId);
+            
+            if (patient == null) {
+                result.addError("Patient with ID " + row.patientId + " not found");
+                return;
+            }
             
-            if (records.isEmpty()) {
-                result.errors.add("CSV file is empty");
-                return result;
+            if (doctor == null) {
+                result.addError("Doctor with ID " + row.doctorId + " not found");
+                return;
             }
             
-            boolean firstRow = true;
-            for (String[] record : records) {
-                if (firstRow) {
-                    firstRow = false;
-                    continue;
+            Appointment appointment = session.add(patient, doctor, row.date, row.startTime, row.endTime,
+                                                  row.reason, row.status, row.notes);
+            
+            if (appointment != null) {
+                result.successCount++;
+            } else {
+                result.addError("Failed to create appointment (outside working hours or conflict)");
+            }
+        };
+    }
+    
+    /**
+     * Finish an all-or-nothing import: publish the staged rows if every row
+     * was accepted and the whole file was read, otherwise discard them.
+     * 
+     * @param publish Swaps the staging copy in; false if the manager changed meanwhile
+     * @param entities Plural used in messages, e.g. "patients"
+     */
+    private static void publishOrRollBack(ImportResult result, Callable<Boolean> publish, String entities,
+                                          Executor publishExecutor) {
+        if (result.errorCount > 0 || !result.errors.isEmpty()) {
+            rollBack(result, "the file has errors");
+            return;
+        }
+        FutureTask<Boolean> task = new FutureTask<>(publish);
+        publishExecutor.execute(task);
+        try {
+            if (!task.get()) {
+                rollBack(result, "the " + entities + " were changed while it was staged");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Once the publish has started it completes on its own
+            if (task.cancel(false)) {
+                rollBack(result, "it was interrupted");
+            }
+        } catch (ExecutionException e) {
+            rollBack(result, "publishing failed: " + e.getCause());
+        }
+    }
+    
+    private static void rollBack(ImportResult result, String reason) {
+        result.rolledBack = true;
+        result.successCount = 0;
+        result.errors.add("Import rolled back because " + reason + "; nothing was imported");
+    }
+    
+    /**
+     * Record a failed row in the result, prefixing unexpected errors with the entity.
+     */
+    static void recordRowError(ImportResult result, Exception e, String entity) {
+        if (e instanceof InvalidRowException) {
+            result.addError(e.getMessage());
+        } else {
+            result.addError("Error importing " + entity + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stream a CSV file, skipping the header row. Rows are read and parsed a
+     * batch at a time on the calling thread; each full batch is handed to
+     * applyExecutor and applied while the next one is parsed. At most one
+     * batch waits to be applied, so memory stays at two batches of rows.
+     * 
+     * @param filePath CSV file to read
+     * @param batchSize Rows per batch (at least 1)
+     * @param result Receives row and file-level errors
+     * @param listener Told the rows applied after each batch; polled for cancellation
+     * @param applyExecutor Runs the apply step of each batch, in order
+     */
+    private static <T> void readInBatches(String filePath, int batchSize, RowParser<T> parser,
+                                          RowApplier<T> applier, String entity, ImportResult result,
+                                          ProgressListener listener, Executor applyExecutor) {
+        int capacity = Math.min(Math.max(1, batchSize), 65536);
+        // The record is reused for every row; a batch holds only the parsed rows
+        CsvRecord record = new CsvRecord(256, 16);
+        Object[] batch = new Object[capacity];
+        Object[] applying = new Object[capacity];
+        FutureTask<Void> pending = null;
+        int size = 0;
+        int rowNumber = 1;
+        long applied = 0;
+        // Added once the last batch is applied, since the apply step also writes to the result
+        String stopError = null;
+        
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(Paths.get(filePath)));
+             CsvTokenizer tokenizer = openTokenizer(in, CsvExporter.isCompressed(filePath))) {
+            long totalBytes = Files.size(Paths.get(filePath));
+            try {
+                if (!tokenizer.readNext(record)) {
+                    result.errors.add("CSV file is empty");
+                    return;
                 }
                 
-                try {
-                    if (record.length < 4) {
-                        result.errors.add("Invalid record: insufficient columns");
-                        result.errorCount++;
-                        continue;
+                boolean more = true;
+                while (more) {
+                    more = tokenizer.readNext(record);
+                    if (more) {
+                        rowNumber++;
+                        batch[size++] = parseRow(parser, record);
                     }
-                    
-                    String name = record[1];
-                    String specialization = record[2];
-                    String phone = record[3];
-                    String email = record.length > 4 && !record[4].isEmpty() ? record[4] : null;
-                    
-                    List<String> availableDays = null;
-                    if (record.length > 5 && !record[5].isEmpty()) {
-                        availableDays = Arrays.asList(record[5].split(";"));
+                    if (size == capacity || (!more && size > 0)) {
+                        if (listener.isCancelled()) {
+                            stopError = "Import cancelled";
+                            break;
+                        }
+                        if (pending != null) {
+                            pending.get();
+                            // Bytes read run slightly ahead of rows applied, by the read buffers
+                            listener.onProgress(applied, fraction(in.count, totalBytes));
+                        }
+                        Object[] rows = batch;
+                        batch = applying;
+                        applying = rows;
+                        pending = submitBatch(rows, size, rowNumber - size + 1, applier, entity, result, applyExecutor);
+                        applied += size;
+                        size = 0;
                     }
-                    
-                    String startTime = record.length > 6 && !record[6].isEmpty() ? record[6] : null;
-                    String endTime = record.length > 7 && !record[7].isEmpty() ? record[7] : null;
-                    
-                    doctorManager.addDoctor(name, specialization, phone, email, availableDays, startTime, endTime);
-                    result.successCount++;
-                } catch (Exception e) {
-                    result.errors.add("Error importing doctor: " + e.getMessage());
-                    result.errorCount++;
                 }
+            } catch (IOException e) {
+                // Rows already read stay imported
+                if (pending != null) {
+                    pending.get();
+                }
+                pending = submitBatch(batch, size, rowNumber - size + 1, applier, entity, result, applyExecutor);
+                applied += size;
+                stopError = "Error reading CSV file: " + e.getMessage();
+            }
+            if (pending != null) {
+                pending.get();
+                pending = null;
+                listener.onProgress(applied, fraction(in.count, totalBytes));
             }
-        } catch (IOException | CsvException e) {
+            if (stopError != null) {
+                result.errors.add(stopError);
+            }
+        } catch (IOException e) {
             result.errors.add("Error reading CSV file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.errors.add("Import interrupted");
+        } catch (ExecutionException e) {
+            result.errors.add("Error importing " + entity + ": " + e.getCause());
+        } finally {
+            if (pending != null) {
+                // Stop a batch that has not started; one already running finishes on its own
+                pending.cancel(false);
+            }
         }
-        
-        return result;
     }
     
-    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
-                                                  PatientManager patientManager, DoctorManager doctorManager) {
-        ImportResult result = new ImportResult();
-        
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
-            
-            if (records.isEmpty()) {
-                result.errors.add("CSV file is empty");
-                return result;
-            }
-            
-            boolean firstRow = true;
-            for (String[] record : records) {
-                if (firstRow) {
-                    firstRow = false;
-                    continue;
-                }
-                
+    /**
+     * Open a CSV file for tokenizing, decompressing it if the name ends in ".gz".
+     */
+    static CsvTokenizer openTokenizer(String filePath) throws IOException {
+        return openTokenizer(Files.newInputStream(Paths.get(filePath)), CsvExporter.isCompressed(filePath));
+    }
+    
+    private static CsvTokenizer openTokenizer(InputStream in, boolean compressed) throws IOException {
+        if (compressed) {
+            in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+        }
+        return new CsvTokenizer(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+    
+    private static double fraction(long bytesRead, long totalBytes) {
+        return totalBytes > 0 ? Math.min(1.0, (double) bytesRead / totalBytes) : -1;
+    }
+    
+    /**
+     * Parse a record, keeping the exception in the row's place if it fails.
+     */
+    private static <T> Object parseRow(RowParser<T> parser, CsvRecord record) {
+        try {
+            return parser.parse(record);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+    
+    /**
+     * Hand a batch of parsed rows to the apply executor.
+     */
+    private static <T> FutureTask<Void> submitBatch(Object[] rows, int size, int firstRowNumber,
+                                                    RowApplier<T> applier, String entity, ImportResult result,
+                                                    Executor applyExecutor) {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            for (int i = 0; i < size; i++) {
+                Object parsed = rows[i];
+                rows[i] = null;
                 try {
-                    if (record.length < 9) {
-                        result.errors.add("Invalid record: insufficient columns");
-                        result.errorCount++;
-                        continue;
-                    }
-                    
-                    LocalDate date = LocalDate.parse(record[1], DATE_FORMATTER);
-                    LocalTime startTime = LocalTime.parse(record[2], TIME_FORMATTER);
-                    LocalTime endTime = LocalTime.parse(record[3], TIME_FORMATTER);
-                    int patientId = Integer.parseInt(record[4]);
-                    int doctorId = Integer.parseInt(record[6]);
-                    String reason = record[8];
-                    
-                    Patient patient = patientManager.getPatientById(patientId);
-                    Doctor doctor = doctorManager.getDoctorById(doctorId);
-                    
-                    if (patient == null) {
-                        result.errors.add("Patient with ID " + patientId + " not found");
-                        result.errorCount++;
-                        continue;
-                    }
-                    
-                    if (doctor == null) {
-                        result.errors.add("Doctor with ID " + doctorId + " not found");
-                        result.errorCount++;
-                        continue;
-                    }
-                    
-                    Appointment appointment = appointmentManager.scheduleAppointment(
-                        patient, doctor, date, startTime, endTime, reason
-                    );
-                    
-                    if (appointment != null) {
-                        if (record.length > 9 && !record[9].isEmpty()) {
-                            try {
-                                AppointmentStatus status = AppointmentStatus.valueOf(record[9]);
-                                appointment.setStatus(status);
-                            } catch (IllegalArgumentException e) {
-                                // Keep default status
-                            }
-                        }
-                        
-                        if (record.length > 10 && !record[10].isEmpty()) {
-                            appointment.setNotes(record[10]);
-                        }
-                        
-                        result.successCount++;
-                    } else {
-                        result.errors.add("Failed to create appointment (possible conflict)");
-                        result.errorCount++;
+                    if (parsed instanceof Exception) {
+                        throw (Exception) parsed;
                     }
+                    @SuppressWarnings("unchecked")
+                    T row = (T) parsed;
+                    applier.apply(row, firstRowNumber + i, result);
                 } catch (Exception e) {
-                    result.errors.add("Error importing appointment: " + e.getMessage());
-                    result.errorCount++;
+                    recordRowError(result, e, entity);
                 }
             }
-        } catch (IOException | CsvException e) {
-            result.errors.add("Error reading CSV file: " + e.getMessage());
+        }, null);
+        applyExecutor.execute(task);
+        return task;
+    }
+    
+    /**
+     * Map a gender column to its shared dictionary instance.
+     * Unrecognised values are kept as written.
+     */
+    private static String normalizeGender(CsvRecord record, int field) {
+        // Exported files hold the canonical spelling; only other spellings need a String
+        String gender = ValueDictionary.GENDERS.lookup(record.chars, record.starts[field], record.length(field));
+        if (gender != null) {
+            return gender;
+        }
+        String written = record.getString(field);
+        String normalized = InputValidator.normalizeGender(written);
+        return normalized != null ? normalized : ValueDictionary.GENDERS.canonical(written);
+    }
+    
+    /**
+     * Map a blood type column to its shared dictionary instance.
+     */
+    private static String normalizeBloodType(CsvRecord record, int field) {
+        String bloodType = ValueDictionary.BLOOD_TYPES.lookup(record.chars, record.starts[field], record.length(field));
+        return bloodType != null ? bloodType : InputValidator.normalizeBloodType(record.getString(field));
+    }
+    
+    /**
+     * Counts the bytes read from a file, before any decompression, so an
+     * import can report how far through the file it is.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
         }
         
-        return result;
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
     }
 }
@@ -0,0 +1,223 @@
+package com.clinicapp.io;
+
+import com.clinicapp.model.DateTimeCodec;
+import com.clinicapp.model.ValueDictionary;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CsvRecord is one CSV row held as slices of a character buffer: field i is
+ * chars[starts[i]..ends[i]). Numbers, dates, times, enum constants and
+ * dictionary values are parsed straight from the buffer, so reading a row
+ * creates objects only for the values that are kept (names, addresses, ...).
+ *
+ * A record filled by CsvTokenizer is reused for the next row; call copy()
+ * to keep one.
+ */
+final class CsvRecord {
+    char[] chars;
+    int[] starts;
+    int[] ends;
+    int size;
+
+    CsvRecord(int charCapacity, int fieldCapacity) {
+        this.chars = new char[charCapacity];
+        this.starts = new int[fieldCapacity];
+        this.ends = new int[fieldCapacity];
+    }
+
+    /**
+     * Number of fields in the row.
+     */
+    int size() {
+        return size;
+    }
+
+    int length(int field) {
+        return ends[field] - starts[field];
+    }
+
+    boolean isEmpty(int field) {
+        return ends[field] == starts[field];
+    }
+
+    String getString(int field) {
+        return new String(chars, starts[field], length(field));
+    }
+
+    /**
+     * Parse a field as a decimal int, as Integer.parseInt would.
+     */
+    int getInt(int field) {
+        int pos = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (pos < end && (chars[pos] == '-' || chars[pos] == '+')) {
+            negative = chars[pos] == '-';
+            pos++;
+        }
+        if (pos == end) {
+            throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = chars[pos] - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > limit) {
+                throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Parse a field in yyyy-MM-dd format.
+     *
+     * @throws DateTimeParseException if the field is not in that format or names a day that does not exist
+     */
+    LocalDate getDate(int field) {
+        return DateTimeCodec.parseDate(chars, starts[field], ends[field]);
+    }
+
+    /**
+     * Parse a field in HH:mm format.
+     *
+     * @throws DateTimeParseException if the field is not in that format or the hour or minute is out of range
+     */
+    LocalTime getTime(int field) {
+        return DateTimeCodec.parseTime(chars, starts[field], ends[field]);
+    }
+
+    /**
+     * Find the constant whose name is exactly the field's text.
+     *
+     * @param values Constants to match, e.g. a cached values() array
+     * @return The matching constant, or null if none matches
+     */
+    <E extends Enum<E>> E getEnum(int field, E[] values) {
+        for (E value : values) {
+            if (matches(starts[field], ends[field], value.name())) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the dictionary's shared instance of a field's text, adding it to
+     * the dictionary only if it is new.
+     */
+    String getCanonical(int field, ValueDictionary dictionary) {
+        return canonical(starts[field], ends[field], dictionary);
+    }
+
+    /**
+     * Split a field on a separator into the dictionary's shared instances,
+     * skipping empty parts.
+     */
+    List<String> getCanonicalList(int field, char separator, ValueDictionary dictionary) {
+        List<String> result = new ArrayList<>();
+        int end = ends[field];
+        int partStart = starts[field];
+        for (int pos = partStart; pos <= end; pos++) {
+            if (pos == end || chars[pos] == separator) {
+                if (pos > partStart) {
+                    result.add(canonical(partStart, pos, dictionary));
+                }
+                partStart = pos + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copy this record into buffers of its own, trimmed to size.
+     */
+    CsvRecord copy() {
+        int length = size == 0 ? 0 : ends[size - 1];
+        CsvRecord copy = new CsvRecord(0, 0);
+        copy.chars = Arrays.copyOf(chars, length);
+        copy.starts = Arrays.copyOf(starts, size);
+        copy.ends = Arrays.copyOf(ends, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * The fields as Strings, as CSVReader.readNext would return them.
+     */
+    String[] toArray() {
+        String[] fields = new String[size];
+        for (int i = 0; i < size; i++) {
+            fields[i] = getString(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Start a new, empty row.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Append a character to the field being built.
+     */
+    void append(char c) {
+        int length = size == 0 ? 0 : ends[size - 1];
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(16, chars.length * 2));
+        }
+        chars[length] = c;
+        ends[size - 1] = length + 1;
+    }
+
+    /**
+     * Append a run of characters to the field being built.
+     */
+    void append(char[] source, int offset, int count) {
+        int length = size == 0 ? 0 : ends[size - 1];
+        if (length + count > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + count));
+        }
+        System.arraycopy(source, offset, chars, length, count);
+        ends[size - 1] = length + count;
+    }
+
+    /**
+     * Start a new, empty field after the last one.
+     */
+    void startField() {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(8, size * 2));
+            ends = Arrays.copyOf(ends, Math.max(8, size * 2));
+        }
+        int length = size == 0 ? 0 : ends[size - 1];
+        starts[size] = length;
+        ends[size] = length;
+        size++;
+    }
+
+    private String canonical(int start, int end, ValueDictionary dictionary) {
+        String value = dictionary.lookup(chars, start, end - start);
+        return value != null ? value : dictionary.canonical(new String(chars, start, end - start));
+    }
+
+    private boolean matches(int start, int end, String value) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (chars[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,154 @@
+package com.clinicapp.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * CsvTokenizer splits CSV text into records without allocating per row or
+ * per field. Characters are read through one reusable buffer and each
+ * record's fields are copied, unquoted, into a CsvRecord supplied by the
+ * caller, which can be reused for every row.
+ *
+ * Quoting follows what CSVWriter produces: a field may be enclosed in double
+ * quotes, a doubled quote inside it stands for one quote, and quoted fields
+ * may contain separators and line breaks. Records end at LF, CR or CRLF.
+ * A quote that does not start a field is kept as an ordinary character.
+ */
+final class CsvTokenizer implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+    private boolean lineEnded;
+
+    CsvTokenizer(Reader in) {
+        this.in = in;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Read the next record into a reusable record, replacing its contents.
+     *
+     * @return false at the end of the input, leaving the record untouched
+     * @throws IOException if reading fails or the input ends inside a quoted field
+     */
+    boolean readNext(CsvRecord record) throws IOException {
+        if (!fill()) {
+            return false;
+        }
+        record.clear();
+        record.startField();
+        boolean quoted = false;
+        boolean fieldStart = true;
+
+        while (true) {
+            if (!fill()) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field at end of CSV file");
+                }
+                lineEnded = false;
+                return true;
+            }
+
+            if (quoted) {
+                int end = indexOf(QUOTE);
+                record.append(buffer, pos, end - pos);
+                pos = end;
+                if (end == limit) {
+                    continue;
+                }
+                pos++;
+                if (fill() && buffer[pos] == QUOTE) {
+                    record.append(QUOTE);
+                    pos++;
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+
+            int end = pos;
+            while (end < limit) {
+                char c = buffer[end];
+                if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                    break;
+                }
+                end++;
+            }
+            if (end > pos) {
+                record.append(buffer, pos, end - pos);
+                fieldStart = false;
+            }
+            pos = end;
+            if (end == limit) {
+                continue;
+            }
+
+            char c = buffer[pos++];
+            if (c == SEPARATOR) {
+                record.startField();
+                fieldStart = true;
+            } else if (c == QUOTE) {
+                if (fieldStart) {
+                    quoted = true;
+                    fieldStart = false;
+                } else {
+                    record.append(QUOTE);
+                }
+            } else {
+                if (c == '\r' && fill() && buffer[pos] == '\n') {
+                    pos++;
+                }
+                lineEnded = true;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Whether the last record read ended with a line break rather than at
+     * the end of the input.
+     */
+    boolean lastRecordEndedLine() {
+        return lineEnded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Make sure at least one unread character is buffered.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private int indexOf(char c) {
+        int i = pos;
+        while (i < limit && buffer[i] != c) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,384 @@
+package com.clinicapp.io;
+
+import com.clinicapp.io.CsvImporter.DuplicatePolicy;
+import com.clinicapp.io.CsvImporter.ImportResult;
+import com.clinicapp.io.CsvImporter.RowApplier;
+import com.clinicapp.io.CsvImporter.RowParser;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.DoctorManager;
+import com.clinicapp.service.PatientManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MappedCsvImporter imports large CSV files by memory-mapping them and
+ * parsing chunks of the file on several threads at once:
+ *
+ * 1. The file is cut into ranges of about CHUNK_SIZE bytes and the quote
+ *    characters in each range are counted in parallel.
+ * 2. The running quote count tells whether each cut falls inside a quoted
+ *    field; each cut is moved forward to just after the next line break
+ *    outside quotes, so every chunk holds whole records.
+ * 3. Workers decode and parse chunks straight from the mapped memory; the
+ *    calling thread applies the parsed rows to the managers in file order.
+ *
+ * No thread reads the file sequentially, so parsing scales with cores
+ * until memory bandwidth runs out. Rows are applied in file order by one
+ * thread, so IDs and ImportResult contents are the same as with CsvImporter.
+ * Gzip files cannot be mapped and go through ParallelCsvImporter instead.
+ *
+ * Finding cuts by counting quotes assumes quotes appear as CSVWriter writes
+ * them: around fields and doubled inside them. A stray quote in an unquoted
+ * field (which the tokenizer keeps as a character) throws the count off,
+ * so cuts are only guesses and each one is checked before its chunk's
+ * rows are applied: the chunk before it must end with a complete record
+ * right at the cut. The first chunk starts at the start of the file, so
+ * if every chunk so far passed, the next one starts at a real record. At
+ * the first chunk that fails, the rest of the file, from that chunk's
+ * start, is imported by ParallelCsvImporter instead. A cut is looked for
+ * at most MAX_CUT_SCAN bytes past its position, so a chunk never gets
+ * too large to map even when the count is off.
+ */
+public class MappedCsvImporter {
+    // Target bytes per chunk; chunks grow to the end of the record they cut
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    // Parsed chunks kept ahead of the apply stage per worker thread
+    private static final int CHUNKS_PER_WORKER = 2;
+
+    // Bytes mapped at a time while looking for the end of a record
+    private static final int SCAN_WINDOW = 1 << 16;
+
+    // Bytes searched past a cut for the end of a record before cutting
+    // there anyway; the cut then fails its check and the import falls back
+    private static final int MAX_CUT_SCAN = 64 << 20;
+
+    // Largest target chunk; with MAX_CUT_SCAN this keeps every mapping under 2 GB
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Parsed rows of one chunk: each entry is a row or the exception it failed with.
+     */
+    private static class ParsedChunk {
+        final long start;
+        final List<Object> rows = new ArrayList<>();
+        String readError;
+        // Whether the chunk ends exactly at the end of a record
+        boolean endsAtRecord;
+
+        ParsedChunk(long start) {
+            this.start = start;
+        }
+    }
+
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy) {
+        return importPatients(filePath, patientManager, duplicatePolicy, defaultThreads());
+    }
+
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy, int threads) {
+        return run(filePath, threads, DEFAULT_CHUNK_SIZE, CsvImporter::parsePatient,
+                   CsvImporter.patientApplier(patientManager, duplicatePolicy), "patient");
+    }
+
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager) {
+        return importDoctors(filePath, doctorManager, defaultThreads());
+    }
+
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager, int threads) {
+        return run(filePath, threads, DEFAULT_CHUNK_SIZE, CsvImporter::parseDoctor,
+                   CsvImporter.doctorApplier(doctorManager), "doctor");
+    }
+
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager) {
+        return importAppointments(filePath, appointmentManager, patientManager, doctorManager, defaultThreads());
+    }
+
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager,
+                                                  int threads) {
+        return run(filePath, threads, DEFAULT_CHUNK_SIZE, CsvImporter::parseAppointment,
+                   CsvImporter.appointmentApplier(appointmentManager, patientManager, doctorManager),
+                   "appointment");
+    }
+
+    /**
+     * Import one file.
+     *
+     * @param filePath CSV file to read
+     * @param threads Number of parse workers (at least 1)
+     * @param chunkSize Target bytes per chunk (at least 64 KB, at most 1 GB)
+     * @param parser Parses a record; runs on worker threads
+     * @param applier Applies a parsed row; runs on the calling thread in file order
+     * @param entity Entity name used in error messages
+     * @return Import result
+     */
+    static <T> ImportResult run(String filePath, int threads, int chunkSize, RowParser<T> parser,
+                                RowApplier<T> applier, String entity) {
+        if (CsvExporter.isCompressed(filePath)) {
+            return ParallelCsvImporter.run(filePath, threads, ParallelCsvImporter.DEFAULT_CHUNK_SIZE,
+                                           parser, applier, entity);
+        }
+
+        ImportResult result = new ImportResult();
+        int workerCount = Math.max(1, threads);
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, daemonThreads("csv-map"));
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // Each chunk is a separate mapping, so keep them large enough to stay few
+            long[] bounds = findChunkBounds(channel, Math.min(MAX_CHUNK_SIZE, Math.max(SCAN_WINDOW, chunkSize)),
+                                            workers);
+            if (bounds.length < 2) {
+                result.errors.add("CSV file is empty");
+                return result;
+            }
+
+            // Keep a few chunks parsing ahead; apply each in file order as it completes
+            Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            int chunkCount = bounds.length - 1;
+            int rowNumber = 1;
+            boolean headerSkipped = false;
+            while (next < chunkCount || !inFlight.isEmpty()) {
+                while (next < chunkCount && inFlight.size() < workerCount * CHUNKS_PER_WORKER) {
+                    long start = bounds[next];
+                    long end = bounds[next + 1];
+                    boolean last = next + 1 == chunkCount;
+                    inFlight.add(workers.submit(() -> parseChunk(channel, start, end, last, parser)));
+                    next++;
+                }
+                ParsedChunk chunk = inFlight.poll().get();
+                if (!chunk.endsAtRecord) {
+                    // The cut after this chunk is not a record boundary; this chunk's start is
+                    workers.shutdownNow();
+                    ParallelCsvImporter.run(() -> openTokenizer(filePath, chunk.start), !headerSkipped, rowNumber,
+                                            result, workerCount, ParallelCsvImporter.DEFAULT_CHUNK_SIZE,
+                                            parser, applier, entity);
+                    break;
+                }
+                for (Object parsed : chunk.rows) {
+                    if (!headerSkipped) {
+                        headerSkipped = true;
+                        continue;
+                    }
+                    rowNumber++;
+                    try {
+                        if (parsed instanceof Exception) {
+                            throw (Exception) parsed;
+                        }
+                        @SuppressWarnings("unchecked")
+                        T row = (T) parsed;
+                        applier.apply(row, rowNumber, result);
+                    } catch (Exception e) {
+                        CsvImporter.recordRowError(result, e, entity);
+                    }
+                }
+                if (chunk.readError != null) {
+                    // Rows already applied stay imported
+                    result.errors.add(chunk.readError);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            result.errors.add("Error reading CSV file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.errors.add("Import interrupted");
+        } catch (ExecutionException e) {
+            result.errors.add("Error importing " + entity + ": " + e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Cut the file into chunks that each start at a record boundary.
+     *
+     * @return Offsets b0 = 0 < b1 < ... < bn = file size; chunk i is [bi, bi+1).
+     *         Empty for an empty file.
+     */
+    private static long[] findChunkBounds(FileChannel channel, int chunkSize, ExecutorService workers)
+            throws IOException, InterruptedException, ExecutionException {
+        long size = channel.size();
+        if (size == 0) {
+            return new long[0];
+        }
+        int ranges = (int) Math.min(Integer.MAX_VALUE - 1, (size + chunkSize - 1) / chunkSize);
+
+        // Count quotes per range in parallel
+        List<Future<Long>> counts = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            long start = (long) i * chunkSize;
+            long end = Math.min(size, start + chunkSize);
+            counts.add(workers.submit(() -> countQuotes(channel, start, end)));
+        }
+
+        List<Long> bounds = new ArrayList<>(ranges + 1);
+        bounds.add(0L);
+        long quotes = 0;
+        for (int i = 1; i < ranges; i++) {
+            quotes += counts.get(i - 1).get();
+            long cut = (long) i * chunkSize;
+            // An odd number of quotes before the cut means it is inside a quoted field
+            long boundary = nextRecordStart(channel, cut, Math.min(size, cut + MAX_CUT_SCAN), (quotes & 1) != 0);
+            if (boundary > bounds.get(bounds.size() - 1) && boundary < size) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Count the '"' bytes in a range. A quote byte never occurs inside a
+     * multi-byte UTF-8 character, so bytes can be counted without decoding.
+     */
+    private static long countQuotes(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        long count = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the offset just after the first line break outside quotes at or
+     * after a position.
+     *
+     * @param limit Offset to stop searching at
+     * @param inQuotes Whether the position is inside a quoted field
+     * @return The offset, or limit if no line break outside quotes comes before it
+     */
+    private static long nextRecordStart(FileChannel channel, long from, long limit, boolean inQuotes)
+            throws IOException {
+        long position = from;
+        while (position < limit) {
+            int length = (int) Math.min(SCAN_WINDOW, limit - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return limit;
+    }
+
+    /**
+     * Worker stage: decode and parse the records of one chunk, keeping
+     * failures per row, and check that the chunk ends at the end of a record.
+     *
+     * @param last Whether this is the last chunk, which ends with the file
+     */
+    private static <T> ParsedChunk parseChunk(FileChannel channel, long start, long end, boolean last,
+                                              RowParser<T> parser) {
+        ParsedChunk chunk = new ParsedChunk(start);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            try (CsvTokenizer tokenizer = new CsvTokenizer(
+                    new InputStreamReader(new MappedInputStream(buffer), StandardCharsets.UTF_8))) {
+                CsvRecord record = new CsvRecord(256, 16);
+                boolean header = start == 0;
+                while (tokenizer.readNext(record)) {
+                    if (header) {
+                        // Keep the header's place so the apply stage can skip it
+                        chunk.rows.add(null);
+                        header = false;
+                        continue;
+                    }
+                    try {
+                        chunk.rows.add(parser.parse(record));
+                    } catch (Exception e) {
+                        chunk.rows.add(e);
+                    }
+                }
+                // A CR at the very end may be the first half of a CRLF split by the cut
+                chunk.endsAtRecord = last || (tokenizer.lastRecordEndedLine()
+                                              && buffer.get(buffer.limit() - 1) != '\r');
+            }
+        } catch (IOException e) {
+            // Before the last chunk, running out of input inside quotes means a misplaced cut
+            chunk.endsAtRecord = last;
+            chunk.readError = "Error reading CSV file: " + e.getMessage();
+        }
+        return chunk;
+    }
+
+    /**
+     * Open a file for tokenizing from a byte offset.
+     */
+    private static CsvTokenizer openTokenizer(String filePath, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        channel.position(offset);
+        return new CsvTokenizer(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a mapped region as a stream, for decoding with InputStreamReader.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final MappedByteBuffer buffer;
+
+        MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+    private static int defaultThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,245 @@
+package com.clinicapp.io;
+
+import com.clinicapp.io.CsvImporter.DuplicatePolicy;
+import com.clinicapp.io.CsvImporter.ImportResult;
+import com.clinicapp.io.CsvImporter.RowApplier;
+import com.clinicapp.io.CsvImporter.RowParser;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.DoctorManager;
+import com.clinicapp.service.PatientManager;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelCsvImporter imports CSV files through a three-stage pipeline:
+ * 
+ * 1. A reader thread splits the file into chunks of rows.
+ * 2. A pool of workers parses and validates chunks (dates, times, numbers,
+ *    dictionary lookups) in parallel.
+ * 3. The calling thread applies parsed rows to the managers in file order.
+ * 
+ * Chunks travel between the stages as futures in a bounded queue, so memory
+ * is limited to a few chunks per worker and the reader waits when the
+ * apply stage falls behind. Because rows are applied by one thread in file
+ * order, IDs and ImportResult contents are the same as with CsvImporter.
+ * Chunks and their records are recycled once applied, so a steady-state
+ * import allocates only the parsed rows.
+ */
+public class ParallelCsvImporter {
+    // Rows handed to a worker at a time
+    public static final int DEFAULT_CHUNK_SIZE = 512;
+    
+    // Chunks in flight per worker thread
+    private static final int CHUNKS_PER_WORKER = 4;
+    
+    /**
+     * Rows of one chunk: parsed rows, or the exception a row failed with.
+     */
+    private static class Chunk {
+        final CsvRecord[] records;
+        final Object[] parsed;
+        int firstRowNumber;
+        int size;
+        boolean last;
+        String readError;
+        
+        Chunk(int capacity) {
+            this.records = new CsvRecord[capacity];
+            this.parsed = new Object[capacity];
+        }
+        
+        /**
+         * Prepare a recycled chunk for the rows starting at a row number.
+         */
+        Chunk reset(int firstRowNumber) {
+            this.firstRowNumber = firstRowNumber;
+            Arrays.fill(parsed, 0, size, null);
+            this.size = 0;
+            return this;
+        }
+    }
+    
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy) {
+        return importPatients(filePath, patientManager, duplicatePolicy, defaultThreads());
+    }
+    
+    public static ImportResult importPatients(String filePath, PatientManager patientManager,
+                                              DuplicatePolicy duplicatePolicy, int threads) {
+        return run(filePath, threads, DEFAULT_CHUNK_SIZE, CsvImporter::parsePatient,
+                   CsvImporter.patientApplier(patientManager, duplicatePolicy), "patient");
+    }
+    
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager) {
+        return importDoctors(filePath, doctorManager, defaultThreads());
+    }
+    
+    public static ImportResult importDoctors(String filePath, DoctorManager doctorManager, int threads) {
+        return run(filePath, threads, DEFAULT_CHUNK_SIZE, CsvImporter::parseDoctor,
+                   CsvImporter.doctorApplier(doctorManager), "doctor");
+    }
+    
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager) {
+        return importAppointments(filePath, appointmentManager, patientManager, doctorManager, defaultThreads());
+    }
+    
+    public static ImportResult importAppointments(String filePath, AppointmentManager appointmentManager,
+                                                  PatientManager patientManager, DoctorManager doctorManager,
+                                                  int threads) {
+        return run(filePath, threads, DEFAULT_CHUNK_SIZE, CsvImporter::parseAppointment,
+                   CsvImporter.appointmentApplier(appointmentManager, patientManager, doctorManager),
+                   "appointment");
+    }
+    
+    /**
+     * Run the pipeline for one file.
+     * 
+     * @param filePath CSV file to read
+     * @param threads Number of parse workers (at least 1)
+     * @param chunkSize Rows per chunk
+     * @param parser Parses a record; runs on worker threads
+     * @param applier Applies a parsed row; runs on the calling thread in file order
+     * @param entity Entity name used in error messages
+     * @return Import result
+     */
+    static <T> ImportResult run(String filePath, int threads, int chunkSize, RowParser<T> parser,
+                                RowApplier<T> applier, String entity) {
+        ImportResult result = new ImportResult();
+        run(() -> CsvImporter.openTokenizer(filePath), true, 1, result, threads, chunkSize, parser, applier, entity);
+        return result;
+    }
+    
+    /**
+     * Run the pipeline over the records of a tokenizer, e.g. to finish an
+     * import that another importer started part way through a file.
+     * 
+     * @param source Opens the tokenizer; called on the reader thread
+     * @param header Whether the first record is a header to skip
+     * @param rowNumber Number of the row before the first record to apply (1 when only a header precedes it)
+     * @param result Result to add to
+     */
+    static <T> void run(Callable<CsvTokenizer> source, boolean header, int rowNumber, ImportResult result,
+                        int threads, int chunkSize, RowParser<T> parser, RowApplier<T> applier, String entity) {
+        int workerCount = Math.max(1, threads);
+        int capacity = Math.max(1, chunkSize);
+        
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, daemonThreads("csv-parse"));
+        BlockingQueue<Future<Chunk>> chunks = new ArrayBlockingQueue<>(workerCount * CHUNKS_PER_WORKER);
+        // Enough chunks for every queue slot plus the one being read and the one being applied
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(workerCount * CHUNKS_PER_WORKER + 2);
+        while (free.remainingCapacity() > 0) {
+            free.add(new Chunk(capacity));
+        }
+        Thread reader = daemonThreads("csv-read").newThread(
+            () -> readChunks(source, header, rowNumber, parser, workers, chunks, free));
+        reader.start();
+        
+        try {
+            while (true) {
+                Chunk chunk = chunks.take().get();
+                for (int i = 0; i < chunk.size; i++) {
+                    Object parsed = chunk.parsed[i];
+                    try {
+                        if (parsed instanceof Exception) {
+                            throw (Exception) parsed;
+                        }
+                        @SuppressWarnings("unchecked")
+                        T row = (T) parsed;
+                        applier.apply(row, chunk.firstRowNumber + i, result);
+                    } catch (Exception e) {
+                        CsvImporter.recordRowError(result, e, entity);
+                    }
+                }
+                if (chunk.readError != null) {
+                    result.errors.add(chunk.readError);
+                }
+                if (chunk.last) {
+                    break;
+                }
+                free.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.errors.add("Import interrupted");
+        } catch (ExecutionException e) {
+            result.errors.add("Error importing " + entity + ": " + e.getCause());
+        } finally {
+            reader.interrupt();
+            workers.shutdownNow();
+        }
+    }
+    
+    /**
+     * Reader stage: cut the file into chunks and submit each to the workers,
+     * queueing the futures in file order. Ends with a chunk marked last.
+     */
+    private static <T> void readChunks(Callable<CsvTokenizer> source, boolean header, int rowNumber,
+                                       RowParser<T> parser, ExecutorService workers,
+                                       BlockingQueue<Future<Chunk>> chunks, BlockingQueue<Chunk> free) {
+        try {
+            Chunk chunk = free.take().reset(rowNumber + 1);
+            try (CsvTokenizer tokenizer = source.call()) {
+                if (header && !tokenizer.readNext(new CsvRecord(256, 16))) {
+                    chunk.readError = "CSV file is empty";
+                } else {
+                    while (true) {
+                        if (chunk.records[chunk.size] == null) {
+                            chunk.records[chunk.size] = new CsvRecord(256, 16);
+                        }
+                        if (!tokenizer.readNext(chunk.records[chunk.size])) {
+                            break;
+                        }
+                        rowNumber++;
+                        if (++chunk.size == chunk.records.length) {
+                            submit(chunk, parser, workers, chunks);
+                            chunk = free.take().reset(rowNumber + 1);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                chunk.readError = "Error reading CSV file: " + e.getMessage();
+            }
+            chunk.last = true;
+            submit(chunk, parser, workers, chunks);
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // The apply stage has stopped; nothing is waiting for more chunks
+        }
+    }
+    
+    private static <T> void submit(Chunk chunk, RowParser<T> parser, ExecutorService workers,
+                                   BlockingQueue<Future<Chunk>> chunks) throws InterruptedException {
+        chunks.put(workers.submit(() -> parseChunk(chunk, parser)));
+    }
+    
+    /**
+     * Worker stage: parse every record of a chunk, keeping failures per row.
+     */
+    private static <T> Chunk parseChunk(Chunk chunk, RowParser<T> parser) {
+        for (int i = 0; i < chunk.size; i++) {
+            try {
+                chunk.parsed[i] = parser.parse(chunk.records[i]);
+            } catch (Exception e) {
+                chunk.parsed[i] = e;
+            }
+        }
+        return chunk;
+    }
+    
+    private static int defaultThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package com.clinicapp.io;
+
+import com.clinicapp.model.Appointment;
+import com.clinicapp.model.DateTimeCodec;
+import com.clinicapp.service.AppointmentManager;
+import com.opencsv.CSVWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PartitionedCsvExporter writes appointments to one CSV file per day, week
+ * or doctor in a single pass, instead of one exportAppointmentsByDate call
+ * (and one full scan) per partition. Each appointment is routed to its
+ * partition's writer as it is read, so the cost grows with the number of
+ * appointments, not appointments times partitions.
+ *
+ * At most maxOpenWriters files are open at once. When another partition
+ * needs a writer, the least recently used one is closed and is later
+ * reopened in append mode if its partition comes up again. Input grouped
+ * by partition, as the AppointmentManager overload supplies it, therefore
+ * opens every file exactly once.
+ *
+ * The last file written is manifest.csv, listing each partition's file,
+ * row count and date range; a directory without a manifest is an export
+ * that did not finish.
+ */
+public class PartitionedCsvExporter {
+    private static final String EXPORT_DIRECTORY = "exports/";
+    public static final String MANIFEST_FILE = "manifest.csv";
+    public static final int DEFAULT_MAX_OPEN_WRITERS = 16;
+
+    // Characters buffered per open partition file; partitions are small, and
+    // large buffers on many open writers would cost more in GC than they save
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private static final String[] MANIFEST_HEADER = {
+        "Partition", "File", "Rows", "First Date", "Last Date"
+    };
+
+    /**
+     * How appointments are split into files.
+     */
+    public enum Partitioning {
+        DAY,    // One file per appointment date, in the exportAppointmentsByDate format
+        WEEK,   // One file per week, Monday to Sunday, named after its Monday
+        DOCTOR  // One file per doctor
+    }
+
+    /**
+     * One partition's file, its writer while open, and what has been written to it.
+     */
+    private static class Partition {
+        final String name;
+        final String fileName;
+        CSVWriter writer;
+        long rows;
+        LocalDate firstDate;
+        LocalDate lastDate;
+
+        Partition(String name, String fileName) {
+            this.name = name;
+            this.fileName = fileName;
+        }
+    }
+
+    /**
+     * Export all appointments of a manager into a new directory under the
+     * exports directory, reading them in partition order from the
+     * manager's schedule index so no file is opened twice.
+     *
+     * @return Path of the manifest
+     */
+    public static String exportAppointments(AppointmentManager appointmentManager,
+                                            Partitioning partitioning) throws IOException {
+        String directory = EXPORT_DIRECTORY + "appointments_by_" + partitioning.name().toLowerCase() + "_" +
+                           LocalDateTime.now().format(TIMESTAMP_FORMATTER) + "/";
+        Iterator<Appointment> appointments = partitioning == Partitioning.DOCTOR
+                ? appointmentManager.streamAppointmentsByDoctor().iterator()
+                : appointmentManager.streamAppointmentsByDate().iterator();
+        return exportAppointments(appointments, partitioning, directory, DEFAULT_MAX_OPEN_WRITERS, false);
+    }
+
+    /**
+     * Export appointments in any order into one file per partition.
+     *
+     * @param directory Directory to write the partition files and manifest to
+     * @param maxOpenWriters Most partition files kept open at once, at least 1
+     * @param compressed Whether to gzip the partition files
+     * @return Path of the manifest
+     * @throws IllegalArgumentException if maxOpenWriters is less than 1
+     */
+    public static String exportAppointments(Iterator<Appointment> appointments, Partitioning partitioning,
+                                            String directory, int maxOpenWriters,
+                                            boolean compressed) throws IOException {
+        if (maxOpenWriters < 1) {
+            throw new IllegalArgumentException("maxOpenWriters must be at least 1");
+        }
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        String extension = compressed ? ".csv" + CsvExporter.COMPRESSED_EXTENSION : ".csv";
+        String[] header = partitioning == Partitioning.DAY ? CsvExporter.DAILY_APPOINTMENT_HEADER
+                                                           : CsvExporter.APPOINTMENT_HEADER;
+        boolean withCreatedAt = partitioning != Partitioning.DAY;
+
+        // Every partition seen so far, in order of first appearance
+        Map<Object, Partition> partitions = new LinkedHashMap<>();
+        // Partitions with an open writer, least recently used first
+        Map<Object, Partition> open = new LinkedHashMap<>(16, 0.75f, true);
+        String[] data = new String[header.length];
+
+        try {
+            while (appointments.hasNext()) {
+                Appointment appointment = appointments.next();
+                Object key = partitionKey(appointment, partitioning);
+
+                Partition partition = open.get(key);
+                if (partition == null) {
+                    partition = partitions.get(key);
+                    boolean reopen = partition != null;
+                    if (!reopen) {
+                        String name = partitionName(key, partitioning);
+                        partition = new Partition(name, dir.resolve("appointments_" + name + extension).toString());
+                        partitions.put(key, partition);
+                    }
+                    if (open.size() >= maxOpenWriters) {
+                        Iterator<Partition> eldest = open.values().iterator();
+                        Partition evicted = eldest.next();
+                        eldest.remove();
+                        close(evicted);
+                    }
+                    partition.writer = new CSVWriter(CsvExporter.openWriter(partition.fileName, reopen, BUFFER_SIZE));
+                    if (!reopen) {
+                        partition.writer.writeNext(header);
+                    }
+                    open.put(key, partition);
+                }
+
+                partition.writer.writeNext(CsvExporter.appointmentRow(appointment, data, withCreatedAt));
+                partition.rows++;
+                LocalDate date = appointment.getAppointmentDate();
+                if (partition.firstDate == null || date.isBefore(partition.firstDate)) {
+                    partition.firstDate = date;
+                }
+                if (partition.lastDate == null || date.isAfter(partition.lastDate)) {
+                    partition.lastDate = date;
+                }
+            }
+
+            for (Iterator<Partition> remaining = open.values().iterator(); remaining.hasNext(); ) {
+                Partition partition = remaining.next();
+                remaining.remove();
+                close(partition);
+            }
+        } finally {
+            // Writers are left here only if an error stopped the export; that error is the one thrown
+            for (Partition partition : open.values()) {
+                try {
+                    partition.writer.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+
+        return writeManifest(dir, partitions.values());
+    }
+
+    /**
+     * Key of the partition an appointment belongs to: its date, its week's
+     * Monday or its doctor's ID.
+     */
+    private static Object partitionKey(Appointment appointment, Partitioning partitioning) {
+        switch (partitioning) {
+            case WEEK:
+                return appointment.getAppointmentDate().with(DayOfWeek.MONDAY);
+            case DOCTOR:
+                return appointment.getDoctor().getId();
+            default:
+                return appointment.getAppointmentDate();
+        }
+    }
+
+    private static String partitionName(Object key, Partitioning partitioning) {
+        switch (partitioning) {
+            case WEEK:
+                return "week_" + ((LocalDate) key).format(FILE_DATE_FORMATTER);
+            case DOCTOR:
+                return "doctor_" + key;
+            default:
+                return ((LocalDate) key).format(FILE_DATE_FORMATTER);
+        }
+    }
+
+    private static void close(Partition partition) throws IOException {
+        CSVWriter writer = partition.writer;
+        partition.writer = null;
+        try {
+            CsvExporter.checkWritten(writer, partition.fileName);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Write the manifest through a temporary file and an atomic rename, so
+     * it only appears once every partition file is complete.
+     */
+    private static String writeManifest(Path dir, Iterable<Partition> partitions) throws IOException {
+        Path manifest = dir.resolve(MANIFEST_FILE);
+        Path temp = dir.resolve(MANIFEST_FILE + ".tmp");
+        try (CSVWriter writer = new CSVWriter(CsvExporter.openWriter(temp.toString()))) {
+            writer.writeNext(MANIFEST_HEADER);
+            String[] data = new String[MANIFEST_HEADER.length];
+            for (Partition partition : partitions) {
+                data[0] = partition.name;
+                data[1] = Paths.get(partition.fileName).getFileName().toString();
+                data[2] = String.valueOf(partition.rows);
+                data[3] = DateTimeCodec.formatDate(partition.firstDate);
+                data[4] = DateTimeCodec.formatDate(partition.lastDate);
+                writer.writeNext(data);
+            }
+            CsvExporter.checkWritten(writer, manifest.toString());
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return manifest.toString();
+    }
+}
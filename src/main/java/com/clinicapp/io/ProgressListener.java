@@ -0,0 +1,27 @@
+package com.clinicapp.io;
+
+/**
+ * ProgressListener follows a long-running import or export and can ask it
+ * to stop. Methods may be called from a background thread, so
+ * implementations that update Swing components must hand the update to
+ * the event dispatch thread.
+ */
+public interface ProgressListener {
+    // Listener for callers that do not follow progress
+    ProgressListener NONE = (rows, fraction) -> { };
+
+    /**
+     * Called after each batch of rows.
+     *
+     * @param rows Rows processed so far
+     * @param fraction Share of the work done, from 0 to 1, or -1 if unknown
+     */
+    void onProgress(long rows, double fraction);
+
+    /**
+     * Polled between batches; once it returns true the operation stops.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
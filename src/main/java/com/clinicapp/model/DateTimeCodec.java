@@ -0,0 +1,285 @@
+package com.clinicapp.model;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+
+/**
+ * DateTimeCodec formats and parses the fixed-width date and time formats
+ * used throughout the application: yyyy-MM-dd dates, HH:mm times,
+ * yyyy-MM-dd HH:mm date-times for display and yyyy-MM-dd HH:mm:ss
+ * timestamps for exports. Digits are written to and read from char
+ * buffers directly, so formatting into a buffer and parsing create no
+ * objects besides the parsed value, unlike DateTimeFormatter, which goes
+ * through a parse context and field map on every call.
+ *
+ * Parsing is strict: fields must have exactly the format's digits, and a
+ * day that does not exist (e.g. 2023-02-30) is rejected rather than moved
+ * to the end of the month. Years must lie in 0001-9999, where yyyy
+ * agrees with DateTimeFormatter's year-of-era.
+ */
+public final class DateTimeCodec {
+    public static final int DATE_LENGTH = 10;       // yyyy-MM-dd
+    public static final int TIME_LENGTH = 5;        // HH:mm
+    public static final int DATE_TIME_LENGTH = 16;  // yyyy-MM-dd HH:mm
+    public static final int TIMESTAMP_LENGTH = 19;  // yyyy-MM-dd HH:mm:ss
+
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+
+    private DateTimeCodec() {
+    }
+
+    /**
+     * Write a date as yyyy-MM-dd.
+     *
+     * @return Offset just past the written characters
+     * @throws DateTimeException if the year is outside 0001-9999
+     */
+    public static int formatDate(LocalDate date, char[] buffer, int offset) {
+        int year = date.getYear();
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw new DateTimeException("Year " + year + " does not fit yyyy");
+        }
+        writeTwoDigits(buffer, offset, year / 100);
+        writeTwoDigits(buffer, offset + 2, year % 100);
+        buffer[offset + 4] = '-';
+        writeTwoDigits(buffer, offset + 5, date.getMonthValue());
+        buffer[offset + 7] = '-';
+        writeTwoDigits(buffer, offset + 8, date.getDayOfMonth());
+        return offset + DATE_LENGTH;
+    }
+
+    /**
+     * Write a time as HH:mm; seconds are dropped.
+     *
+     * @return Offset just past the written characters
+     */
+    public static int formatTime(LocalTime time, char[] buffer, int offset) {
+        writeTwoDigits(buffer, offset, time.getHour());
+        buffer[offset + 2] = ':';
+        writeTwoDigits(buffer, offset + 3, time.getMinute());
+        return offset + TIME_LENGTH;
+    }
+
+    /**
+     * Write a date-time as yyyy-MM-dd HH:mm.
+     *
+     * @return Offset just past the written characters
+     * @throws DateTimeException if the year does not fit yyyy
+     */
+    public static int formatDateTime(LocalDateTime dateTime, char[] buffer, int offset) {
+        offset = formatDate(dateTime.toLocalDate(), buffer, offset);
+        buffer[offset] = ' ';
+        return formatTime(dateTime.toLocalTime(), buffer, offset + 1);
+    }
+
+    /**
+     * Write a date-time as yyyy-MM-dd HH:mm:ss; fractions of a second are dropped.
+     *
+     * @return Offset just past the written characters
+     * @throws DateTimeException if the year does not fit yyyy
+     */
+    public static int formatTimestamp(LocalDateTime dateTime, char[] buffer, int offset) {
+        offset = formatDateTime(dateTime, buffer, offset);
+        buffer[offset] = ':';
+        writeTwoDigits(buffer, offset + 1, dateTime.getSecond());
+        return offset + 3;
+    }
+
+    public static String formatDate(LocalDate date) {
+        char[] buffer = new char[DATE_LENGTH];
+        formatDate(date, buffer, 0);
+        return new String(buffer);
+    }
+
+    public static String formatTime(LocalTime time) {
+        char[] buffer = new char[TIME_LENGTH];
+        formatTime(time, buffer, 0);
+        return new String(buffer);
+    }
+
+    public static String formatDateTime(LocalDateTime dateTime) {
+        char[] buffer = new char[DATE_TIME_LENGTH];
+        formatDateTime(dateTime, buffer, 0);
+        return new String(buffer);
+    }
+
+    public static String formatTimestamp(LocalDateTime dateTime) {
+        char[] buffer = new char[TIMESTAMP_LENGTH];
+        formatTimestamp(dateTime, buffer, 0);
+        return new String(buffer);
+    }
+
+    /**
+     * Parse chars[start..end) in yyyy-MM-dd format.
+     *
+     * @throws DateTimeParseException if the text is not in that format or names a day that does not exist
+     */
+    public static LocalDate parseDate(char[] chars, int start, int end) {
+        LocalDate date = end - start != DATE_LENGTH ? null
+                : date(digits(chars, start, 4), chars[start + 4], digits(chars, start + 5, 2),
+                       chars[start + 7], digits(chars, start + 8, 2));
+        if (date == null) {
+            throw unparsable(new String(chars, start, end - start));
+        }
+        return date;
+    }
+
+    /**
+     * Parse chars[start..end) in HH:mm format.
+     *
+     * @throws DateTimeParseException if the text is not in that format or the hour or minute is out of range
+     */
+    public static LocalTime parseTime(char[] chars, int start, int end) {
+        LocalTime time = end - start != TIME_LENGTH ? null
+                : time(digits(chars, start, 2), chars[start + 2], digits(chars, start + 3, 2), ':', 0);
+        if (time == null) {
+            throw unparsable(new String(chars, start, end - start));
+        }
+        return time;
+    }
+
+    /**
+     * Parse chars[start..end) in yyyy-MM-dd HH:mm:ss format.
+     *
+     * @throws DateTimeParseException if the text is not in that format or names a time that does not exist
+     */
+    public static LocalDateTime parseTimestamp(char[] chars, int start, int end) {
+        LocalDate date = end - start != TIMESTAMP_LENGTH || chars[start + 10] != ' ' ? null
+                : date(digits(chars, start, 4), chars[start + 4], digits(chars, start + 5, 2),
+                       chars[start + 7], digits(chars, start + 8, 2));
+        LocalTime time = date == null ? null
+                : time(digits(chars, start + 11, 2), chars[start + 13], digits(chars, start + 14, 2),
+                       chars[start + 16], digits(chars, start + 17, 2));
+        if (time == null) {
+            throw unparsable(new String(chars, start, end - start));
+        }
+        return LocalDateTime.of(date, time);
+    }
+
+    /**
+     * Parse text in yyyy-MM-dd format.
+     *
+     * @throws DateTimeParseException if the text is not in that format or names a day that does not exist
+     */
+    public static LocalDate parseDate(CharSequence text) {
+        LocalDate date = text.length() != DATE_LENGTH ? null
+                : date(digits(text, 0, 4), text.charAt(4), digits(text, 5, 2), text.charAt(7), digits(text, 8, 2));
+        if (date == null) {
+            throw unparsable(text.toString());
+        }
+        return date;
+    }
+
+    /**
+     * Parse text in HH:mm format.
+     *
+     * @throws DateTimeParseException if the text is not in that format or the hour or minute is out of range
+     */
+    public static LocalTime parseTime(CharSequence text) {
+        LocalTime time = text.length() != TIME_LENGTH ? null
+                : time(digits(text, 0, 2), text.charAt(2), digits(text, 3, 2), ':', 0);
+        if (time == null) {
+            throw unparsable(text.toString());
+        }
+        return time;
+    }
+
+    /**
+     * Parse text in yyyy-MM-dd HH:mm:ss format.
+     *
+     * @throws DateTimeParseException if the text is not in that format or names a time that does not exist
+     */
+    public static LocalDateTime parseTimestamp(CharSequence text) {
+        LocalDate date = text.length() != TIMESTAMP_LENGTH || text.charAt(10) != ' ' ? null
+                : date(digits(text, 0, 4), text.charAt(4), digits(text, 5, 2), text.charAt(7), digits(text, 8, 2));
+        LocalTime time = date == null ? null
+                : time(digits(text, 11, 2), text.charAt(13), digits(text, 14, 2), text.charAt(16), digits(text, 17, 2));
+        if (time == null) {
+            throw unparsable(text.toString());
+        }
+        return LocalDateTime.of(date, time);
+    }
+
+    /**
+     * Build a date from parsed fields.
+     *
+     * @return The date, or null if a field is not a number, a separator is wrong or the day does not exist
+     */
+    private static LocalDate date(int year, char dash1, int month, char dash2, int day) {
+        if (dash1 != '-' || dash2 != '-' || year < MIN_YEAR || month < 1 || month > 12
+                || day < 1 || day > lengthOfMonth(year, month)) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Build a time from parsed fields.
+     *
+     * @return The time, or null if a field is not a number, a separator is wrong or a field is out of range
+     */
+    private static LocalTime time(int hour, char colon1, int minute, char colon2, int second) {
+        if (colon1 != ':' || colon2 != ':' || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59) {
+            return null;
+        }
+        return LocalTime.of(hour, minute, second);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return Year.isLeap(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static void writeTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Read count decimal digits.
+     *
+     * @return The value, or -1 if any character is not a digit
+     */
+    private static int digits(char[] chars, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digits(CharSequence text, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static DateTimeParseException unparsable(String text) {
+        return new DateTimeParseException("Text '" + text + "' could not be parsed", text, 0);
+    }
+}
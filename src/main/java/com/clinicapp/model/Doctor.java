@@ -12,13 +12,14 @@ public class Doctor {
     
     private final int id;
     private String name;
-    private String specialization;
+    private int specializationCode; // ValueDictionary.SPECIALIZATIONS code
     private String phoneNumber;
     private String email;
-    private List<String> availableDays; // Days of the week (e.g., "Monday", "Tuesday")
+    private List<String> availableDays; // Days of the week (e.g., "Monday"), shared ValueDictionary.WEEKDAYS instances
     private String startTime; // e.g., "09:00"
     private String endTime;   // e.g., "17:00"
     private boolean isAvailable;
+    private WeeklyCalendar calendar; // Compiled from days and hours; null until needed after a change
     
     /**
      * Constructor for creating a new doctor with auto-generated ID.
@@ -28,10 +29,10 @@ public class Doctor {
                   String endTime) {
         this.id = nextId++;
         this.name = name;
-        this.specialization = specialization;
+        this.specializationCode = ValueDictionary.SPECIALIZATIONS.encode(specialization);
         this.phoneNumber = phoneNumber;
         this.email = email;
-        this.availableDays = availableDays != null ? new ArrayList<>(availableDays) : new ArrayList<>();
+        this.availableDays = canonicalDays(availableDays);
         this.startTime = startTime;
         this.endTime = endTime;
         this.isAvailable = true;
@@ -51,11 +52,18 @@ public class Doctor {
     }
     
     public String getSpecialization() {
-        return specialization;
+        return ValueDictionary.SPECIALIZATIONS.decode(specializationCode);
     }
     
     public void setSpecialization(String specialization) {
-        this.specialization = specialization;
+        this.specializationCode = ValueDictionary.SPECIALIZATIONS.encode(specialization);
+    }
+    
+    /**
+     * Get the dictionary code of the specialization, for integer comparisons.
+     */
+    public int getSpecializationCode() {
+        return specializationCode;
     }
     
     public String getPhoneNumber() {
@@ -79,7 +87,22 @@ public class Doctor {
     }
     
     public void setAvailableDays(List<String> availableDays) {
-        this.availableDays = availableDays != null ? new ArrayList<>(availableDays) : new ArrayList<>();
+        this.availableDays = canonicalDays(availableDays);
+        this.calendar = null;
+    }
+    
+    /**
+     * Copy a list of day names, replacing each with its shared dictionary instance.
+     */
+    private static List<String> canonicalDays(List<String> days) {
+        if (days == null) {
+            return new ArrayList<>();
+        }
+        List<String> canonical = new ArrayList<>(days.size());
+        for (String day : days) {
+            canonical.add(ValueDictionary.WEEKDAYS.canonical(day));
+        }
+        return canonical;
     }
     
     public String getStartTime() {
@@ -88,6 +111,7 @@ public class Doctor {
     
     public void setStartTime(String startTime) {
         this.startTime = startTime;
+        this.calendar = null;
     }
     
     public String getEndTime() {
@@ -96,6 +120,18 @@ public class Doctor {
     
     public void setEndTime(String endTime) {
         this.endTime = endTime;
+        this.calendar = null;
+    }
+    
+    /**
+     * Get the compiled weekly working calendar. It is rebuilt only after
+     * the days or hours change.
+     */
+    public WeeklyCalendar getCalendar() {
+        if (calendar == null) {
+            calendar = WeeklyCalendar.compile(availableDays, startTime, endTime);
+        }
+        return calendar;
     }
     
     public boolean isAvailable() {
@@ -113,7 +149,7 @@ public class Doctor {
     public String toString() {
         String status = isAvailable ? "Available" : "Unavailable";
         return String.format("ID: %d | Dr. %s | %s | %s | Phone: %s",
-                           id, name, specialization, status, phoneNumber);
+                           id, name, getSpecialization(), status, phoneNumber);
     }
     
     /**
@@ -126,7 +162,7 @@ public class Doctor {
         sb.append("╠════════════════════════════════════════════════════════════════╣\n");
         sb.append(String.format("║ Doctor ID      : %-45d ║\n", id));
         sb.append(String.format("║ Name           : Dr. %-41s ║\n", name));
-        sb.append(String.format("║ Specialization : %-45s ║\n", specialization));
+        sb.append(String.format("║ Specialization : %-45s ║\n", getSpecialization()));
         sb.append(String.format("║ Phone Number   : %-45s ║\n", phoneNumber));
         sb.append(String.format("║ Email          : %-45s ║\n", email != null ? email : "N/A"));
         sb.append(String.format("║ Status         : %-45s ║\n", isAvailable ? "Available" : "Unavailable"));
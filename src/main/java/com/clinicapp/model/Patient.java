@@ -1,7 +1,6 @@
 package com.clinicapp.model;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Patient model representing a patient in the clinic system.
@@ -13,11 +12,13 @@ public class Patient {
     private final int id;
     private String name;
     private LocalDate dateOfBirth;
-    private String gender;
+    private int genderCode;      // ValueDictionary.GENDERS code
+    private String otherGender;  // The gender as given when its code is UNLISTED
     private String phoneNumber;
     private String email;
     private String address;
-    private String bloodType;
+    private int bloodTypeCode;   // ValueDictionary.BLOOD_TYPES code
+    private String otherBloodType; // The blood type as given when its code is UNLISTED
     private String allergies;
     
     /**
@@ -29,11 +30,11 @@ public class Patient {
         this.id = nextId++;
         this.name = name;
         this.dateOfBirth = dateOfBirth;
-        this.gender = gender;
+        setGender(gender);
         this.phoneNumber = phoneNumber;
         this.email = email;
         this.address = address;
-        this.bloodType = bloodType;
+        setBloodType(bloodType);
         this.allergies = allergies;
     }
     
@@ -59,11 +60,19 @@ public class Patient {
     }
     
     public String getGender() {
-        return gender;
+        return genderCode == ValueDictionary.UNLISTED ? otherGender : ValueDictionary.GENDERS.decode(genderCode);
     }
     
     public void setGender(String gender) {
-        this.gender = gender;
+        this.genderCode = ValueDictionary.GENDERS.encode(gender);
+        this.otherGender = genderCode == ValueDictionary.UNLISTED ? gender : null;
+    }
+    
+    /**
+     * Get the dictionary code of the gender, for integer comparisons.
+     */
+    public int getGenderCode() {
+        return genderCode;
     }
     
     public String getPhoneNumber() {
@@ -91,11 +100,20 @@ public class Patient {
     }
     
     public String getBloodType() {
-        return bloodType;
+        return bloodTypeCode == ValueDictionary.UNLISTED ? otherBloodType
+                                                         : ValueDictionary.BLOOD_TYPES.decode(bloodTypeCode);
     }
     
     public void setBloodType(String bloodType) {
-        this.bloodType = bloodType;
+        this.bloodTypeCode = ValueDictionary.BLOOD_TYPES.encode(bloodType);
+        this.otherBloodType = bloodTypeCode == ValueDictionary.UNLISTED ? bloodType : null;
+    }
+    
+    /**
+     * Get the dictionary code of the blood type, for integer comparisons.
+     */
+    public int getBloodTypeCode() {
+        return bloodTypeCode;
     }
     
     public String getAllergies() {
@@ -118,29 +136,27 @@ public class Patient {
      */
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         return String.format("ID: %d | Name: %s | DOB: %s | Age: %d | Gender: %s | Phone: %s",
-                           id, name, dateOfBirth.format(formatter), getAge(), gender, phoneNumber);
+                           id, name, DateTimeCodec.formatDate(dateOfBirth), getAge(), getGender(), phoneNumber);
     }
     
     /**
      * Get detailed patient information for display.
      */
     public String getDetailedInfo() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         StringBuilder sb = new StringBuilder();
         sb.append("\n╔════════════════════════════════════════════════════════════════╗\n");
         sb.append("║                      PATIENT DETAILS                           ║\n");
         sb.append("╠════════════════════════════════════════════════════════════════╣\n");
         sb.append(String.format("║ Patient ID    : %-45d ║\n", id));
         sb.append(String.format("║ Name          : %-45s ║\n", name));
-        sb.append(String.format("║ Date of Birth : %-45s ║\n", dateOfBirth.format(formatter)));
+        sb.append(String.format("║ Date of Birth : %-45s ║\n", DateTimeCodec.formatDate(dateOfBirth)));
         sb.append(String.format("║ Age           : %-45d ║\n", getAge()));
-        sb.append(String.format("║ Gender        : %-45s ║\n", gender));
+        sb.append(String.format("║ Gender        : %-45s ║\n", getGender()));
         sb.append(String.format("║ Phone Number  : %-45s ║\n", phoneNumber));
         sb.append(String.format("║ Email         : %-45s ║\n", email != null ? email : "N/A"));
         sb.append(String.format("║ Address       : %-45s ║\n", address != null ? address : "N/A"));
-        sb.append(String.format("║ Blood Type    : %-45s ║\n", bloodType != null ? bloodType : "N/A"));
+        sb.append(String.format("║ Blood Type    : %-45s ║\n", getBloodType() != null ? getBloodType() : "N/A"));
         sb.append(String.format("║ Allergies     : %-45s ║\n", allergies != null ? allergies : "None"));
         sb.append("╚════════════════════════════════════════════════════════════════╝\n");
         return sb.toString();
@@ -0,0 +1,58 @@
+package com.clinicapp.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * ScheduleException marks a period when a doctor does not see patients,
+ * such as a vacation, a conference or a half day, on top of their regular
+ * weekly calendar. The period runs from start (inclusive) to end (exclusive).
+ */
+public class ScheduleException {
+    private static int nextId = 1;
+
+    private final int id;
+    private final int doctorId;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final String reason;
+
+    /**
+     * Constructor for creating a new schedule exception with auto-generated ID.
+     */
+    public ScheduleException(int doctorId, LocalDateTime start, LocalDateTime end, String reason) {
+        this.id = nextId++;
+        this.doctorId = doctorId;
+        this.start = start;
+        this.end = end;
+        this.reason = reason;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Get formatted display string for the exception.
+     */
+    @Override
+    public String toString() {
+        return String.format("ID: %d | %s to %s | %s", id, DateTimeCodec.formatDateTime(start),
+                             DateTimeCodec.formatDateTime(end), reason != null ? reason : "Leave");
+    }
+}
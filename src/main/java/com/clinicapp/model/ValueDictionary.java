@@ -0,0 +1,173 @@
+package com.clinicapp.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ValueDictionary encodes low-cardinality string fields (gender, blood type,
+ * specialization, weekday) as small integer codes shared by every record.
+ * Models store the code and decode on read, so a million patients share one
+ * "Male" instead of carrying a million copies, and filters can compare ints.
+ * Safe for concurrent use; codes are never reassigned.
+ *
+ * Genders, blood types and weekdays are closed dictionaries: they hold
+ * exactly the values InputValidator accepts and never grow, so free-form
+ * values from a bad import are not kept for the life of the application.
+ * Such values get the UNLISTED code and the model keeps them as plain
+ * strings. Specializations are open and take any new value.
+ */
+public final class ValueDictionary {
+    // Code used for a null value
+    public static final int NO_VALUE = -1;
+
+    // Code of a value a closed dictionary does not list; the caller keeps the value itself
+    public static final int UNLISTED = -2;
+
+    public static final ValueDictionary GENDERS =
+        new ValueDictionary(true, "Male", "Female", "Other");
+
+    public static final ValueDictionary BLOOD_TYPES =
+        new ValueDictionary(true, "A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-");
+
+    public static final ValueDictionary SPECIALIZATIONS = new ValueDictionary(false);
+
+    public static final ValueDictionary WEEKDAYS =
+        new ValueDictionary(true, "Monday", "Tuesday", "Wednesday", "Thursday",
+                            "Friday", "Saturday", "Sunday");
+
+    // Largest dictionary lookup(char[], ...) scans linearly
+    private static final int MAX_SCANNED_VALUES = 64;
+
+    // Value -> code, for encoding
+    private final Map<String, Integer> codes;
+
+    // Code -> canonical value, for decoding; replaced (never mutated in place) on growth
+    private volatile String[] values;
+    private int size;
+
+    // Whether values outside the initial ones are refused instead of added
+    private final boolean closed;
+
+    private ValueDictionary(boolean closed, String... initialValues) {
+        this.codes = new ConcurrentHashMap<>();
+        this.values = new String[Math.max(8, initialValues.length)];
+        for (String value : initialValues) {
+            encode(value);
+        }
+        this.closed = closed;
+    }
+
+    /**
+     * Get the code for a value, adding it to the dictionary if it is new
+     * and the dictionary is open.
+     *
+     * @return The code, NO_VALUE for null, or UNLISTED for a value a closed dictionary does not hold
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (closed) {
+            return UNLISTED;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Get the canonical value for a code.
+     *
+     * @return The value, or null for NO_VALUE and UNLISTED
+     */
+    public String decode(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+     * Get the shared instance equal to a value, adding it if it is new and
+     * the dictionary is open. A closed dictionary returns an unlisted value
+     * itself.
+     */
+    public String canonical(String value) {
+        int code = encode(value);
+        return code == UNLISTED ? value : decode(code);
+    }
+
+    /**
+     * Get the shared instance equal to a run of characters without creating
+     * a String. Only small dictionaries are scanned; larger ones report no
+     * match so the caller falls back to canonical(String).
+     *
+     * @return The value, or null if it is not found
+     */
+    public String lookup(char[] chars, int offset, int length) {
+        String[] current = values;
+        int count = Math.min(size(), current.length);
+        if (count > MAX_SCANNED_VALUES) {
+            return null;
+        }
+        for (int code = 0; code < count; code++) {
+            String value = current[code];
+            if (value != null && value.length() == length && regionEquals(value, chars, offset)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the codes whose values equal the given value ignoring case.
+     * Used to turn a case-insensitive filter into integer comparisons.
+     *
+     * @return Flags indexed by code; true where the value matches
+     */
+    public boolean[] matchIgnoreCase(String value) {
+        String[] current = values;
+        int count = Math.min(size(), current.length);
+        boolean[] matches = new boolean[count];
+        for (int code = 0; code < count; code++) {
+            matches[code] = current[code] != null && current[code].equalsIgnoreCase(value);
+        }
+        return matches;
+    }
+
+    /**
+     * Check whether a code is flagged in a matchIgnoreCase result.
+     */
+    public static boolean matches(boolean[] flags, int code) {
+        return code >= 0 && code < flags.length && flags[code];
+    }
+
+    /**
+     * Get the number of distinct values in the dictionary.
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    private static boolean regionEquals(String value, char[] chars, int offset) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
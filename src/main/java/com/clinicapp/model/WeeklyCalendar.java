@@ -0,0 +1,176 @@
+package com.clinicapp.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * WeeklyCalendar is the compiled form of a doctor's working days and hours:
+ * one bit per DayOfWeek and a working range in minutes of the day. It is
+ * built once from the free-text days and "HH:mm" strings on Doctor, so
+ * checking whether a booking falls inside working hours is a few integer
+ * comparisons. Instances are immutable.
+ */
+public final class WeeklyCalendar {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int ALL_DAYS = (1 << 7) - 1;
+
+    // Calendar for a doctor with no days or hours recorded: always working
+    public static final WeeklyCalendar ALWAYS = new WeeklyCalendar(ALL_DAYS, 0, MINUTES_PER_DAY);
+
+    // Bit (DayOfWeek.getValue() - 1) is set for each working day
+    private final int dayMask;
+
+    // Working range in minutes of the day; end < start means the shift ends after midnight
+    private final int startMinute;
+    private final int endMinute;
+
+    private WeeklyCalendar(int dayMask, int startMinute, int endMinute) {
+        this.dayMask = dayMask;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    /**
+     * Compile a doctor's working days and hours.
+     * Days may be full names or three-letter abbreviations in any case;
+     * unrecognised days are ignored. Missing days mean every day, and
+     * missing or unparseable hours mean the whole day.
+     *
+     * @param days Working day names
+     * @param startTime Start of the working day, "HH:mm"
+     * @param endTime End of the working day, "HH:mm"
+     * @return The compiled calendar
+     */
+    public static WeeklyCalendar compile(List<String> days, String startTime, String endTime) {
+        int mask = 0;
+        if (days != null) {
+            for (String day : days) {
+                DayOfWeek dayOfWeek = parseDay(day);
+                if (dayOfWeek != null) {
+                    mask |= bit(dayOfWeek);
+                }
+            }
+        }
+        if (mask == 0) {
+            mask = ALL_DAYS;
+        }
+
+        int start = parseMinute(startTime);
+        int end = parseMinute(endTime);
+        if (start < 0 || end < 0 || start == end) {
+            start = 0;
+            end = MINUTES_PER_DAY;
+        }
+
+        if (mask == ALL_DAYS && start == 0 && end == MINUTES_PER_DAY) {
+            return ALWAYS;
+        }
+        return new WeeklyCalendar(mask, start, end);
+    }
+
+    /**
+     * Check whether the doctor works on a day of the week.
+     */
+    public boolean worksOn(DayOfWeek day) {
+        return (dayMask & bit(day)) != 0;
+    }
+
+    /**
+     * Check whether a booking lies entirely within working hours.
+     *
+     * @param date Date of the booking
+     * @param start Start time of the booking
+     * @param end End time of the booking
+     * @return true if the doctor works that day and the whole interval is covered
+     */
+    public boolean covers(LocalDate date, LocalTime start, LocalTime end) {
+        return worksOn(date.getDayOfWeek())
+            && coversMinutes(toMinute(start), toMinute(end));
+    }
+
+    /**
+     * Check whether a range of minutes of the day lies within working hours,
+     * ignoring the day of the week.
+     */
+    public boolean coversMinutes(int start, int end) {
+        if (end < start) {
+            return false;
+        }
+        if (startMinute < endMinute) {
+            return start >= startMinute && end <= endMinute;
+        }
+        // Overnight shift: covered if entirely in the evening or the morning part
+        return start >= startMinute || end <= endMinute;
+    }
+
+    public int getDayMask() {
+        return dayMask;
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    /**
+     * Convert a time to minutes since midnight.
+     */
+    public static int toMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        if (day == null) {
+            return null;
+        }
+        String trimmed = day.trim();
+        if (trimmed.length() < 3) {
+            return null;
+        }
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            String name = dayOfWeek.name();
+            if (trimmed.length() <= name.length() && name.regionMatches(true, 0, trimmed, 0, trimmed.length())) {
+                return dayOfWeek;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse "H:mm" or "HH:mm" into minutes since midnight; "24:00" is the end of the day.
+     *
+     * @return The minute, or -1 if the value is missing or malformed
+     */
+    private static int parseMinute(String time) {
+        if (time == null) {
+            return -1;
+        }
+        String trimmed = time.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 1 || colon > 2 || trimmed.length() != colon + 3) {
+            return -1;
+        }
+        int hour = 0;
+        for (int i = 0; i < colon; i++) {
+            char c = trimmed.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            hour = hour * 10 + (c - '0');
+        }
+        char tens = trimmed.charAt(colon + 1);
+        char units = trimmed.charAt(colon + 2);
+        if (tens < '0' || tens > '5' || units < '0' || units > '9') {
+            return -1;
+        }
+        int minute = hour * 60 + (tens - '0') * 10 + (units - '0');
+        return minute <= MINUTES_PER_DAY ? minute : -1;
+    }
+}
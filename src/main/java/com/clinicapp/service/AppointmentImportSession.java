@@ -0,0 +1,112 @@
+package com.clinicapp.service;
+
+import com.clinicapp.model.Appointment;
+import com.clinicapp.model.Appointment.AppointmentStatus;
+import com.clinicapp.model.Doctor;
+import com.clinicapp.model.Patient;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * AppointmentImportSession adds appointments in bulk, e.g. from a CSV file.
+ * For every doctor and day it touches it keeps the busy time as sorted,
+ * merged intervals, seeded from that day's open appointments with one
+ * merge pass over the doctor's schedule. Each row is then checked with a
+ * single floor lookup, so an import of n rows costs O(n log n) instead of a
+ * scan of the day per row. Imported appointments record no undo entries.
+ *
+ * Rows are accepted in the order they are added. New bookings, i.e. open
+ * appointments from today on, follow the same rules as
+ * AppointmentManager.scheduleAppointment: the doctor must be working, and the
+ * interval must not overlap an open appointment (touching counts as overlap).
+ * Historical records are restored as they were: open appointments before
+ * today skip the working time check, since the doctor's hours and leave may
+ * have changed since, and closed appointments (completed, cancelled, etc.)
+ * skip both checks because they do not hold the doctor's time.
+ * The manager must not be changed by other means while a session is in use.
+ */
+public class AppointmentImportSession {
+    private final AppointmentManager appointmentManager;
+    private final DoctorManager doctorManager;
+
+    // Appointments before this date are historical; fixed for the session
+    private final LocalDate today;
+
+    // Doctor ID -> date -> busy intervals: start -> end, merged, non-touching
+    private final Map<Integer, Map<LocalDate, NavigableMap<LocalTime, LocalTime>>> busy;
+
+    AppointmentImportSession(AppointmentManager appointmentManager, DoctorManager doctorManager) {
+        this.appointmentManager = appointmentManager;
+        this.doctorManager = doctorManager;
+        this.today = LocalDate.now();
+        this.busy = new HashMap<>();
+    }
+
+    /**
+     * Add an appointment. A new booking is added only if the doctor is
+     * working and free at that time; a past open appointment only if the
+     * doctor is free; a closed appointment always.
+     *
+     * @param status Status to import with, or null for SCHEDULED
+     * @param notes Notes to import with, or null for none
+     * @return The new Appointment, or null if the doctor is off duty or busy
+     *         for a new booking, or busy for a past open appointment
+     */
+    public Appointment add(Patient patient, Doctor doctor, LocalDate date, LocalTime startTime,
+                           LocalTime endTime, String reason, AppointmentStatus status, String notes) {
+        if (patient == null || doctor == null) {
+            return null;
+        }
+        boolean open = status == null || status == AppointmentStatus.SCHEDULED
+                       || status == AppointmentStatus.CONFIRMED;
+        if (!open) {
+            return appointmentManager.addImportedAppointment(patient, doctor, date, startTime,
+                                                             endTime, reason, status, notes);
+        }
+        if (!date.isBefore(today) && !doctorManager.isScheduledToWork(doctor, date, startTime, endTime)) {
+            return null;
+        }
+
+        NavigableMap<LocalTime, LocalTime> day = busy.computeIfAbsent(doctor.getId(), k -> new HashMap<>())
+                                                     .computeIfAbsent(date, d -> busyIntervals(doctor.getId(), d));
+        // Intervals are disjoint, so only the last one starting by endTime can reach startTime
+        Map.Entry<LocalTime, LocalTime> before = day.floorEntry(endTime);
+        if (before != null && !before.getValue().isBefore(startTime)) {
+            return null;
+        }
+
+        Appointment appointment = appointmentManager.addImportedAppointment(patient, doctor, date, startTime,
+                                                                            endTime, reason, status, notes);
+        day.put(startTime, endTime);
+        return appointment;
+    }
+
+    /**
+     * Merge a doctor's open appointments on a day, already sorted by start
+     * time, into disjoint intervals.
+     */
+    private NavigableMap<LocalTime, LocalTime> busyIntervals(int doctorId, LocalDate date) {
+        NavigableMap<LocalTime, LocalTime> intervals = new TreeMap<>();
+        LocalTime start = null;
+        LocalTime end = null;
+        for (Appointment apt : appointmentManager.getDaySchedule(doctorId, date)) {
+            if (!AppointmentManager.isOpen(apt)) continue;
+            if (start != null && !apt.getStartTime().isAfter(end)) {
+                if (apt.getEndTime().isAfter(end)) {
+                    end = apt.getEndTime();
+                }
+            } else {
+                if (start != null) {
+                    intervals.put(start, end);
+                }
+                start = apt.getStartTime();
+                end = apt.getEndTime();
+            }
+        }
+        if (start != null) {
+            intervals.put(start, end);
+        }
+        return intervals;
+    }
+}
@@ -9,26 +9,59 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * AppointmentManager handles all appointment-related operations including
  * scheduling, updating, cancelling appointments, queue management, and undo functionality.
  * Uses Stack for undo operations and Queue for appointment processing.
+ * 
+ * All-or-nothing imports go through a staging copy (stageImport) that is
+ * swapped in by publishImport; see PatientManager.
  */
 public class AppointmentManager {
-    // HashMap for O(1) lookup by appointment ID
-    private final Map<Integer, Appointment> appointments;
+    // TreeMap keyed by appointment ID: O(log n) lookup and a stable ID order for paging
+    private NavigableMap<Integer, Appointment> appointments;
     
     // Stack to support undo functionality - stores last action details
     private final Stack<AppointmentAction> undoStack;
     
     // Queue for processing appointments in order (FIFO)
-    private final Queue<Appointment> appointmentQueue;
+    private Queue<Appointment> appointmentQueue;
+    
+    // Reverse indexes: patient/doctor ID -> their active appointments
+    private Map<Integer, Set<Appointment>> appointmentsByPatient;
+    private Map<Integer, Set<Appointment>> appointmentsByDoctor;
+    
+    // Doctor ID -> date -> that day's appointments ordered by start time, for
+    // conflict and free-slot checks that only look at one doctor's day
+    private Map<Integer, NavigableMap<LocalDate, NavigableSet<Appointment>>> doctorSchedules;
+    
+    // Booked appointments per doctor per day and per week, for least-loaded routing
+    private DoctorLoadTracker dailyLoads;
+    private DoctorLoadTracker weeklyLoads;
+    
+    // Modification sequence per appointment, for incremental exports.
+    // Archived appointments count as deleted: they leave the active set.
+    private ChangeJournal<Appointment> changes;
+    
+    // Appointments archived by a cascading delete, keyed by patient ID
+    private final Map<Integer, List<Appointment>> archivedByPatient;
+    
+    // Order of appointments within a doctor's day
+    private static final Comparator<Appointment> BY_START_TIME =
+        Comparator.comparing(Appointment::getStartTime).thenComparingInt(Appointment::getId);
     
     // Reference to managers for validation
     private final PatientManager patientManager;
     private final DoctorManager doctorManager;
     
+    // Set on a copy made by stageImport: the manager it was copied from
+    // and that manager's change sequence at the time
+    private AppointmentManager stagedFrom;
+    private long stagedAtSequence;
+    
     /**
      * Inner class to represent an appointment action for undo functionality.
      */
@@ -46,20 +79,46 @@ public class AppointmentManager {
         }
     }
     
+    /**
+     * What happens to a deleted patient's or doctor's appointments.
+     */
+    public enum CascadeAction {
+        CANCEL,   // Cancel open appointments; history stays in place
+        REASSIGN, // Move open appointments to a replacement doctor (doctors only)
+        ARCHIVE   // Move all appointments out of the active set into the archive
+    }
+    
+    /**
+     * Period over which doctor load is compared when routing a booking.
+     */
+    public enum RoutingPeriod {
+        DAY,  // Booked appointments on the requested date
+        WEEK  // Booked appointments in the requested date's week (Monday to Sunday)
+    }
+    
     /**
      * Constructor initializes appointment storage and undo/queue structures.
      */
     public AppointmentManager(PatientManager patientManager, DoctorManager doctorManager) {
-        this.appointments = new HashMap<>();
+        this.appointments = new TreeMap<>();
         this.undoStack = new Stack<>();
         this.appointmentQueue = new LinkedList<>();
+        this.appointmentsByPatient = new HashMap<>();
+        this.appointmentsByDoctor = new HashMap<>();
+        this.doctorSchedules = new HashMap<>();
+        this.dailyLoads = new DoctorLoadTracker(doctorManager, false);
+        this.weeklyLoads = new DoctorLoadTracker(doctorManager, true);
+        this.archivedByPatient = new HashMap<>();
+        this.changes = new ChangeJournal<>();
         this.patientManager = patientManager;
         this.doctorManager = doctorManager;
     }
     
     /**
      * Schedule a new appointment.
-     * Validates that patient and doctor exist before creating appointment.
+     * Validates that patient and doctor exist, that the time falls within the
+     * doctor's working calendar and outside their leave, and that it does not
+     * conflict before creating the appointment.
      * 
      * @param patient Patient for the appointment
      * @param doctor Doctor for the appointment
@@ -75,12 +134,18 @@ public class AppointmentManager {
             return null;
         }
         
+        if (!doctorManager.isScheduledToWork(doctor, date, startTime, endTime)) {
+            return null;
+        }
+        
         if (hasConflict(doctor, date, startTime, endTime)) {
             return null;
         }
         
         Appointment appointment = new Appointment(patient, doctor, date, startTime, endTime, reason);
         appointments.put(appointment.getId(), appointment);
+        indexAppointment(appointment);
+        changes.recordChange(appointment.getId(), appointment);
         
         appointmentQueue.offer(appointment);
         
@@ -106,28 +171,146 @@ public class AppointmentManager {
         return scheduleAppointment(patient, doctor, date, startTime, endTime, reason);
     }
     
+    /**
+     * Start adding appointments in bulk. The session checks working time and
+     * conflicts against sorted per-doctor, per-day intervals and records no
+     * undo entries, so large imports neither rescan each day nor fill the undo stack.
+     * Historical appointments are restored without the working time check.
+     * 
+     * @return A session to add appointments through until the import ends
+     */
+    public AppointmentImportSession startImport() {
+        return new AppointmentImportSession(this, doctorManager);
+    }
+    
+    /**
+     * Add an appointment checked by an import session, without an undo
+     * entry. Open appointments join the processing queue.
+     */
+    Appointment addImportedAppointment(Patient patient, Doctor doctor, LocalDate date, LocalTime startTime,
+                                       LocalTime endTime, String reason, AppointmentStatus status, String notes) {
+        Appointment appointment = new Appointment(patient, doctor, date, startTime, endTime, reason);
+        if (status != null) {
+            appointment.setStatus(status);
+        }
+        if (notes != null) {
+            appointment.setNotes(notes);
+        }
+        appointments.put(appointment.getId(), appointment);
+        indexAppointment(appointment);
+        changes.recordChange(appointment.getId(), appointment);
+        if (isOpen(appointment)) {
+            appointmentQueue.offer(appointment);
+        }
+        return appointment;
+    }
+    
+    /**
+     * Get a doctor's appointments on a day, ordered by start time.
+     * Read-only live view.
+     */
+    NavigableSet<Appointment> getDaySchedule(int doctorId, LocalDate date) {
+        NavigableMap<LocalDate, NavigableSet<Appointment>> schedule = doctorSchedules.get(doctorId);
+        NavigableSet<Appointment> day = schedule != null ? schedule.get(date) : null;
+        return day != null ? Collections.unmodifiableNavigableSet(day) : Collections.emptyNavigableSet();
+    }
+    
     /**
      * Check if doctor has a scheduling conflict at the given time.
-     * Checks if time ranges overlap.
+     * Checks if time ranges overlap, looking only at the doctor's appointments
+     * that day which start no later than the requested end.
      */
     private boolean hasConflict(Doctor doctor, LocalDate date, LocalTime startTime, LocalTime endTime) {
-        for (Appointment apt : appointments.values()) {
-            if ((apt.getStatus() == AppointmentStatus.SCHEDULED || 
-                 apt.getStatus() == AppointmentStatus.CONFIRMED) &&
-                apt.getDoctor().getId() == doctor.getId() &&
-                apt.getAppointmentDate().equals(date)) {
-                
-                LocalTime aptStart = apt.getStartTime();
-                LocalTime aptEnd = apt.getEndTime();
-                
-                if (timesOverlap(startTime, endTime, aptStart, aptEnd)) {
-                    return true;
-                }
+        NavigableMap<LocalDate, NavigableSet<Appointment>> schedule = doctorSchedules.get(doctor.getId());
+        NavigableSet<Appointment> day = schedule != null ? schedule.get(date) : null;
+        if (day == null) {
+            return false;
+        }
+        for (Appointment apt : day) {
+            if (apt.getStartTime().isAfter(endTime)) {
+                break;
+            }
+            if (isOpen(apt) && timesOverlap(startTime, endTime, apt.getStartTime(), apt.getEndTime())) {
+                return true;
             }
         }
         return false;
     }
     
+    /**
+     * Find the doctors of a specialization who are free for a whole interval:
+     * marked available, working at that time according to their calendar,
+     * not on leave and without an overlapping booking. Only the specialization's doctors and
+     * each one's appointments on that day are examined.
+     * 
+     * @param specialization Specialization to match exactly (ignoring case)
+     * @param date Date of the interval
+     * @param startTime Start of the interval
+     * @param endTime End of the interval
+     * @return List of free doctors in ID order
+     */
+    public List<Doctor> findAvailableDoctors(String specialization, LocalDate date,
+                                             LocalTime startTime, LocalTime endTime) {
+        List<Doctor> free = new ArrayList<>();
+        for (Doctor doctor : doctorManager.findAvailableDoctors(specialization, date, startTime, endTime)) {
+            if (!hasConflict(doctor, date, startTime, endTime)) {
+                free.add(doctor);
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Find the least-loaded doctor of a specialization who is free for an
+     * interval. Load is the number of booked (not cancelled or no-show)
+     * appointments in the period; ties go to the lowest doctor ID. Doctors
+     * are visited in load order, so the search usually stops at the first.
+     * 
+     * @param specialization Specialization to match exactly (ignoring case)
+     * @param date Date of the interval
+     * @param startTime Start of the interval
+     * @param endTime End of the interval
+     * @param period Whether to balance daily or weekly load
+     * @return The chosen doctor, or null if no doctor is free
+     */
+    public Doctor findLeastLoadedDoctor(String specialization, LocalDate date, LocalTime startTime,
+                                        LocalTime endTime, RoutingPeriod period) {
+        return loadsFor(period).findLeastLoaded(specialization, date,
+            doctor -> doctor.isAvailable()
+                && doctorManager.isScheduledToWork(doctor, date, startTime, endTime)
+                && !hasConflict(doctor, date, startTime, endTime));
+    }
+    
+    /**
+     * Schedule an appointment with the least-loaded free doctor of a specialization.
+     * 
+     * @param patient Patient for the appointment
+     * @param specialization Specialization required
+     * @param date Date of appointment
+     * @param startTime Start time of appointment
+     * @param endTime End time of appointment
+     * @param reason Reason for visit
+     * @param period Whether to balance daily or weekly load
+     * @return The newly created Appointment object, or null if no doctor is free
+     */
+    public Appointment scheduleWithLeastLoadedDoctor(Patient patient, String specialization, LocalDate date,
+                                                     LocalTime startTime, LocalTime endTime, String reason,
+                                                     RoutingPeriod period) {
+        Doctor doctor = findLeastLoadedDoctor(specialization, date, startTime, endTime, period);
+        return doctor != null ? scheduleAppointment(patient, doctor, date, startTime, endTime, reason) : null;
+    }
+    
+    /**
+     * Get a doctor's booked appointment count for the day or week containing a date.
+     */
+    public int getDoctorLoad(int doctorId, LocalDate date, RoutingPeriod period) {
+        return loadsFor(period).getLoad(doctorId, date);
+    }
+    
+    private DoctorLoadTracker loadsFor(RoutingPeriod period) {
+        return period == RoutingPeriod.WEEK ? weeklyLoads : dailyLoads;
+    }
+    
     /**
      * Check if two time ranges overlap.
      */
@@ -149,6 +332,108 @@ public class AppointmentManager {
         return new ArrayList<>(appointments.values());
     }
     
+    /**
+     * Get one page of appointments in ID order.
+     * 
+     * @param offset Number of appointments to skip
+     * @param limit Maximum number of appointments to return
+     * @return List of at most limit appointments
+     */
+    public List<Appointment> getAppointmentsPage(int offset, int limit) {
+        return streamAppointments().skip(Math.max(0, offset)).limit(Math.max(0, limit))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Get the appointments following a cursor, in ID order. Pass the last ID of
+     * the previous page (or 0 for the first page); the cost does not grow
+     * with how far into the table the page is.
+     * 
+     * @param afterId Cursor: only appointments with a greater ID are returned
+     * @param limit Maximum number of appointments to return
+     * @return List of at most limit appointments
+     */
+    public List<Appointment> getAppointmentsAfter(int afterId, int limit) {
+        List<Appointment> page = new ArrayList<>(Math.min(Math.max(0, limit), 1024));
+        Iterator<Appointment> it = appointments.tailMap(afterId, false).values().iterator();
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+    
+    /**
+     * Stream all appointments in ID order without copying them into a list.
+     * The manager must not be modified while the stream is in use.
+     * 
+     * @return Sequential stream of appointments; call parallel() to split it
+     */
+    public Stream<Appointment> streamAppointments() {
+        return StreamSupport.stream(appointmentSpliterator(), false);
+    }
+    
+    /**
+     * Spliterator over all appointments in ID order. This is the TreeMap's own
+     * spliterator, which splits along the tree for parallel streams; it
+     * reports ORDERED and, until it is split, SIZED.
+     */
+    public Spliterator<Appointment> appointmentSpliterator() {
+        return appointments.values().spliterator();
+    }
+    
+    /**
+     * Stream all appointments ordered by date, then start time, then ID,
+     * without sorting: each doctor's schedule is already in that order, so
+     * the schedules are merged in O(n log d) for d doctors. The manager
+     * must not be modified while the stream is in use.
+     */
+    public Stream<Appointment> streamAppointmentsByDate() {
+        Comparator<Appointment> order =
+            Comparator.comparing(Appointment::getAppointmentDate).thenComparing(BY_START_TIME);
+        // Head appointment of each doctor's remaining schedule, paired with the rest of it
+        PriorityQueue<Map.Entry<Appointment, Iterator<Appointment>>> heads =
+            new PriorityQueue<>(Math.max(1, doctorSchedules.size()), Map.Entry.comparingByKey(order));
+        for (NavigableMap<LocalDate, NavigableSet<Appointment>> schedule : doctorSchedules.values()) {
+            Iterator<Appointment> rest = schedule.values().stream().flatMap(Set::stream).iterator();
+            if (rest.hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(rest.next(), rest));
+            }
+        }
+    
+        Iterator<Appointment> merged = new Iterator<Appointment>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+    
+            @Override
+            public Appointment next() {
+                Map.Entry<Appointment, Iterator<Appointment>> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                Iterator<Appointment> rest = head.getValue();
+                if (rest.hasNext()) {
+                    heads.add(new AbstractMap.SimpleEntry<>(rest.next(), rest));
+                }
+                return head.getKey();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(merged, appointments.size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+    
+    /**
+     * Stream all appointments grouped by doctor in doctor ID order, each
+     * doctor's ordered by date and start time. The manager must not be
+     * modified while the stream is in use.
+     */
+    public Stream<Appointment> streamAppointmentsByDoctor() {
+        return new TreeMap<>(doctorSchedules).values().stream()
+                .flatMap(schedule -> schedule.values().stream())
+                .flatMap(Set::stream);
+    }
+    
     /**
      * Get appointments by status.
      */
@@ -162,18 +447,28 @@ public class AppointmentManager {
      * Get appointments for a specific patient.
      */
     public List<Appointment> getAppointmentsByPatient(int patientId) {
-        return appointments.values().stream()
-                .filter(apt -> apt.getPatient().getId() == patientId)
-                .collect(Collectors.toList());
+        return new ArrayList<>(appointmentsByPatient.getOrDefault(patientId, Collections.emptySet()));
+    }
+    
+    /**
+     * Get the number of active appointments for a patient.
+     */
+    public int getAppointmentCountByPatient(int patientId) {
+        return appointmentsByPatient.getOrDefault(patientId, Collections.emptySet()).size();
     }
     
     /**
      * Get appointments for a specific doctor.
      */
     public List<Appointment> getAppointmentsByDoctor(int doctorId) {
-        return appointments.values().stream()
-                .filter(apt -> apt.getDoctor().getId() == doctorId)
-                .collect(Collectors.toList());
+        return new ArrayList<>(appointmentsByDoctor.getOrDefault(doctorId, Collections.emptySet()));
+    }
+    
+    /**
+     * Get the number of active appointments for a doctor.
+     */
+    public int getAppointmentCountByDoctor(int doctorId) {
+        return appointmentsByDoctor.getOrDefault(doctorId, Collections.emptySet()).size();
     }
     
     /**
@@ -199,15 +494,19 @@ public class AppointmentManager {
         Appointment previousState = cloneAppointment(appointment);
         
         if (newDate != null && newStartTime != null && newEndTime != null) {
-            if (hasConflict(appointment.getDoctor(), newDate, newStartTime, newEndTime)) {
+            if (!doctorManager.isScheduledToWork(appointment.getDoctor(), newDate, newStartTime, newEndTime)
+                    || hasConflict(appointment.getDoctor(), newDate, newStartTime, newEndTime)) {
                 return false;
             }
+            unscheduleAppointment(appointment);
             appointment.setAppointmentDate(newDate);
             appointment.setStartTime(newStartTime);
             appointment.setEndTime(newEndTime);
+            scheduleIndex(appointment);
         }
         if (newReason != null) appointment.setReason(newReason);
         if (notes != null) appointment.setNotes(notes);
+        changes.recordChange(id, appointment);
         
         undoStack.push(new AppointmentAction(AppointmentAction.ActionType.UPDATE,
                                             appointment, previousState));
@@ -241,7 +540,7 @@ public class AppointmentManager {
         }
         
         Appointment previousState = cloneAppointment(appointment);
-        appointment.setStatus(AppointmentStatus.CONFIRMED);
+        changeStatus(appointment, AppointmentStatus.CONFIRMED);
         
         undoStack.push(new AppointmentAction(AppointmentAction.ActionType.UPDATE,
                                             appointment, previousState));
@@ -258,7 +557,7 @@ public class AppointmentManager {
         }
         
         Appointment previousState = cloneAppointment(appointment);
-        appointment.setStatus(AppointmentStatus.CANCELLED);
+        changeStatus(appointment, AppointmentStatus.CANCELLED);
         
         // Remove from queue if present
         appointmentQueue.remove(appointment);
@@ -278,7 +577,7 @@ public class AppointmentManager {
         }
         
         Appointment previousState = cloneAppointment(appointment);
-        appointment.setStatus(AppointmentStatus.COMPLETED);
+        changeStatus(appointment, AppointmentStatus.COMPLETED);
         if (notes != null) {
             appointment.setNotes(notes);
         }
@@ -301,7 +600,7 @@ public class AppointmentManager {
         }
         
         Appointment previousState = cloneAppointment(appointment);
-        appointment.setStatus(AppointmentStatus.NO_SHOW);
+        changeStatus(appointment, AppointmentStatus.NO_SHOW);
         
         // Remove from queue if present
         appointmentQueue.remove(appointment);
@@ -319,7 +618,7 @@ public class AppointmentManager {
         Appointment appointment = appointmentQueue.poll();
         if (appointment != null && appointments.containsKey(appointment.getId())) {
             Appointment previousState = cloneAppointment(appointment);
-            appointment.setStatus(AppointmentStatus.IN_PROGRESS);
+            changeStatus(appointment, AppointmentStatus.IN_PROGRESS);
             
             undoStack.push(new AppointmentAction(AppointmentAction.ActionType.UPDATE,
                                                 appointment, previousState));
@@ -357,7 +656,10 @@ public class AppointmentManager {
         switch (action.type) {
             case ADD:
                 // Remove the appointment that was added
-                appointments.remove(action.appointment.getId());
+                if (appointments.remove(action.appointment.getId()) != null) {
+                    unindexAppointment(action.appointment);
+                    changes.recordDeletion(action.appointment.getId());
+                }
                 appointmentQueue.remove(action.appointment);
                 break;
                 
@@ -368,7 +670,10 @@ public class AppointmentManager {
                 if (action.previousState != null) {
                     Appointment current = appointments.get(action.appointment.getId());
                     if (current != null) {
+                        unscheduleAppointment(current);
                         restoreAppointmentState(current, action.previousState);
+                        scheduleIndex(current);
+                        changes.recordChange(current.getId(), current);
                         
                         // Re-add to queue if it was scheduled/confirmed
                         if (current.getStatus() == AppointmentStatus.SCHEDULED ||
@@ -472,12 +777,379 @@ public class AppointmentManager {
     public boolean deleteAppointment(int id) {
         Appointment removed = appointments.remove(id);
         if (removed != null) {
+            unindexAppointment(removed);
+            changes.recordDeletion(id);
             appointmentQueue.remove(removed);
             return true;
         }
         return false;
     }
     
+    /**
+     * Delete a patient and handle their appointments.
+     * Only the patient's own appointments are touched, found through the
+     * reverse index. Undo entries for those appointments are discarded,
+     * since undoing them would bring back appointments for a patient who
+     * no longer exists.
+     * 
+     * @param patientId Patient ID to delete
+     * @param action CANCEL or ARCHIVE (patients cannot be reassigned)
+     * @return Number of appointments affected, or -1 if the patient was not found
+     */
+    public int deletePatient(int patientId, CascadeAction action) {
+        if (action == CascadeAction.REASSIGN) {
+            throw new IllegalArgumentException("Patient appointments cannot be reassigned");
+        }
+        if (!patientManager.patientExists(patientId)) {
+            return -1;
+        }
+        
+        List<Appointment> dependents = getAppointmentsByPatient(patientId);
+        int affected = applyCascade(dependents, action);
+        discardUndoEntries(dependents);
+        patientManager.deletePatient(patientId);
+        return affected;
+    }
+    
+    /**
+     * Delete a doctor and handle their appointments.
+     * With REASSIGN, open appointments move to the replacement doctor; any
+     * that fall outside the replacement's working time or conflict with
+     * their bookings are cancelled. Undo entries for the doctor's
+     * appointments are discarded, as for deletePatient.
+     * 
+     * @param doctorId Doctor ID to delete
+     * @param action What to do with the doctor's appointments
+     * @param replacement Doctor taking over appointments (REASSIGN only)
+     * @return Number of appointments affected, or -1 if the doctor was not found
+     */
+    public int deleteDoctor(int doctorId, CascadeAction action, Doctor replacement) {
+        if (!doctorManager.doctorExists(doctorId)) {
+            return -1;
+        }
+        if (action == CascadeAction.REASSIGN && (replacement == null || replacement.getId() == doctorId)) {
+            throw new IllegalArgumentException("A different replacement doctor is required to reassign");
+        }
+        
+        List<Appointment> dependents = getAppointmentsByDoctor(doctorId);
+        int affected;
+        if (action == CascadeAction.REASSIGN) {
+            List<Appointment> conflicting = new ArrayList<>();
+            affected = 0;
+            for (Appointment apt : dependents) {
+                if (!isOpen(apt)) continue;
+                if (!doctorManager.isScheduledToWork(replacement, apt.getAppointmentDate(), apt.getStartTime(), apt.getEndTime())
+                        || hasConflict(replacement, apt.getAppointmentDate(), apt.getStartTime(), apt.getEndTime())) {
+                    conflicting.add(apt);
+                } else {
+                    unindexAppointment(apt);
+                    apt.setDoctor(replacement);
+                    indexAppointment(apt);
+                    changes.recordChange(apt.getId(), apt);
+                    affected++;
+                }
+            }
+            affected += applyCascade(conflicting, CascadeAction.CANCEL);
+        } else {
+            affected = applyCascade(dependents, action);
+        }
+        discardUndoEntries(dependents);
+        doctorManager.deleteDoctor(doctorId);
+        return affected;
+    }
+    
+    /**
+     * Remove all data held for a patient (e.g. for a data retention request):
+     * the patient record, their active and archived appointments, and any
+     * queue or undo entries that refer to them.
+     * 
+     * @param patientId Patient ID to erase
+     * @return Number of appointments removed, or -1 if the patient was not found
+     */
+    public int removeAllPatientData(int patientId) {
+        if (!patientManager.patientExists(patientId)) {
+            return -1;
+        }
+        
+        Set<Appointment> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Appointment apt : getAppointmentsByPatient(patientId)) {
+            appointments.remove(apt.getId());
+            unindexAppointment(apt);
+            changes.recordDeletion(apt.getId());
+            removed.add(apt);
+        }
+        List<Appointment> archived = archivedByPatient.remove(patientId);
+        if (archived != null) {
+            removed.addAll(archived);
+        }
+        
+        if (!removed.isEmpty()) {
+            appointmentQueue.removeIf(removed::contains);
+        }
+        // Undo entries (including cloned previous states) also hold the patient
+        undoStack.removeIf(action -> action.appointment.getPatient().getId() == patientId);
+        
+        patientManager.deletePatient(patientId);
+        return removed.size();
+    }
+    
+    /**
+     * Get appointments archived for a patient by a cascading delete.
+     */
+    public List<Appointment> getArchivedAppointments(int patientId) {
+        return new ArrayList<>(archivedByPatient.getOrDefault(patientId, Collections.emptyList()));
+    }
+    
+    /**
+     * Get the ID of this manager's change journal. A watermark is only
+     * valid against the journal that issued it.
+     */
+    public String getChangeJournalId() {
+        return changes.getId();
+    }
+    
+    /**
+     * Get the latest modification sequence number. Every create, update and
+     * delete takes the next number, so this is the watermark that covers
+     * all changes made so far.
+     * 
+     * @return Latest sequence number, 0 if nothing has changed yet
+     */
+    public long getChangeSequence() {
+        return changes.getSequence();
+    }
+    
+    /**
+     * Get the sequence number of a appointment's latest create, update or delete.
+     * 
+     * @param id Appointment ID
+     * @return Sequence number, 0 if the appointment never existed
+     */
+    public long getModificationSequence(int id) {
+        return changes.getSequence(id);
+    }
+    
+    /**
+     * Stream the appointments created or modified after a watermark that still
+     * exist, in the order of their latest change. Only the changed appointments
+     * are visited. The manager must not be modified while the stream is in use.
+     * 
+     * @param watermark Sequence number from an earlier getChangeSequence()
+     * @return Sequential stream of changed appointments
+     */
+    public Stream<Appointment> streamAppointmentsChangedSince(long watermark) {
+        return changes.changedSince(watermark).stream();
+    }
+    
+    /**
+     * Get the IDs of appointments deleted after a watermark.
+     * 
+     * @param watermark Sequence number from an earlier getChangeSequence()
+     * @return List of deleted IDs in deletion order
+     */
+    public List<Integer> getAppointmentsDeletedSince(long watermark) {
+        return changes.deletedSince(watermark);
+    }
+    
+    /**
+     * Make a private copy of this manager to import into, e.g. through the
+     * copy's startImport(). Appointments added to the copy are checked
+     * against all existing ones but stay invisible here until publishImport,
+     * so a failed import just drops the copy. The undo stack and archive are
+     * not copied: imports record no undo entries and archive nothing.
+     * Building the copy only reads this manager, so it may run on a worker
+     * thread while nothing modifies the manager.
+     * 
+     * @return A staging manager holding the same appointments
+     */
+    public AppointmentManager stageImport() {
+        long sequence = changes.getSequence();
+        AppointmentManager staged = new AppointmentManager(patientManager, doctorManager);
+        for (Appointment apt : appointments.values()) {
+            staged.appointments.put(apt.getId(), apt);
+            staged.indexAppointment(apt);
+        }
+        staged.appointmentQueue.addAll(appointmentQueue);
+        staged.changes = new ChangeJournal<>(changes);
+        staged.stagedFrom = this;
+        staged.stagedAtSequence = sequence;
+        return staged;
+    }
+    
+    /**
+     * Replace this manager's appointments, indexes, queue and change journal
+     * with those of a copy from stageImport in one step. The undo stack and
+     * archive stay as they are. The copy must not be used afterwards.
+     * 
+     * @param staged Staging copy holding the imported appointments
+     * @return true if published; false if the copy was not staged from this
+     *         manager, was already published, or this manager has changed since
+     */
+    public boolean publishImport(AppointmentManager staged) {
+        if (staged.stagedFrom != this || changes.getSequence() != staged.stagedAtSequence) {
+            return false;
+        }
+        appointments = staged.appointments;
+        appointmentQueue = staged.appointmentQueue;
+        appointmentsByPatient = staged.appointmentsByPatient;
+        appointmentsByDoctor = staged.appointmentsByDoctor;
+        doctorSchedules = staged.doctorSchedules;
+        dailyLoads = staged.dailyLoads;
+        weeklyLoads = staged.weeklyLoads;
+        changes = staged.changes;
+        staged.stagedFrom = null;
+        return true;
+    }
+    
+    /**
+     * Cancel or archive a set of dependent appointments.
+     */
+    private int applyCascade(List<Appointment> dependents, CascadeAction action) {
+        Set<Appointment> dequeued = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Appointment apt : dependents) {
+            if (action == CascadeAction.ARCHIVE) {
+                appointments.remove(apt.getId());
+                unindexAppointment(apt);
+                changes.recordDeletion(apt.getId());
+                archivedByPatient.computeIfAbsent(apt.getPatient().getId(), k -> new ArrayList<>()).add(apt);
+                dequeued.add(apt);
+            } else if (isOpen(apt)) {
+                // No undo entry: the deleted patient or doctor cannot be restored
+                changeStatus(apt, AppointmentStatus.CANCELLED);
+                dequeued.add(apt);
+            }
+        }
+        if (!dequeued.isEmpty()) {
+            appointmentQueue.removeIf(dequeued::contains);
+        }
+        return dequeued.size();
+    }
+    
+    /**
+     * Drop the undo entries of a deleted patient's or doctor's appointments,
+     * whether or not the cascade changed them: any of them could restore an
+     * appointment to an open state that refers to the deleted record.
+     */
+    private void discardUndoEntries(List<Appointment> dependents) {
+        if (dependents.isEmpty()) {
+            return;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Appointment apt : dependents) {
+            ids.add(apt.getId());
+        }
+        undoStack.removeIf(action -> ids.contains(action.appointment.getId()));
+    }
+    
+    /**
+     * Set an appointment's status without recording an undo entry, e.g. when
+     * loading appointments from a file.
+     * 
+     * @return true if the appointment was found
+     */
+    public boolean setAppointmentStatus(int id, AppointmentStatus status) {
+        Appointment appointment = appointments.get(id);
+        if (appointment == null) {
+            return false;
+        }
+        changeStatus(appointment, status);
+        return true;
+    }
+    
+    /**
+     * Change an appointment's status, keeping the doctor load counters in
+     * step when it moves in or out of the booked states, and record the change.
+     */
+    private void changeStatus(Appointment apt, AppointmentStatus status) {
+        boolean wasBooked = isBooked(apt);
+        apt.setStatus(status);
+        boolean booked = isBooked(apt);
+        if (appointments.containsKey(apt.getId())) {
+            if (wasBooked != booked) {
+                adjustLoad(apt, booked ? 1 : -1);
+            }
+            changes.recordChange(apt.getId(), apt);
+        }
+    }
+    
+    private void adjustLoad(Appointment apt, int delta) {
+        dailyLoads.adjust(apt.getDoctor(), apt.getAppointmentDate(), delta);
+        weeklyLoads.adjust(apt.getDoctor(), apt.getAppointmentDate(), delta);
+    }
+    
+    /**
+     * Booked appointments count towards doctor load.
+     */
+    private static boolean isBooked(Appointment apt) {
+        return apt.getStatus() != AppointmentStatus.CANCELLED &&
+               apt.getStatus() != AppointmentStatus.NO_SHOW;
+    }
+    
+    static boolean isOpen(Appointment apt) {
+        return apt.getStatus() == AppointmentStatus.SCHEDULED ||
+               apt.getStatus() == AppointmentStatus.CONFIRMED;
+    }
+    
+    /**
+     * Add an appointment to the patient and doctor reverse indexes and the
+     * doctor's day schedule.
+     */
+    private void indexAppointment(Appointment apt) {
+        appointmentsByPatient.computeIfAbsent(apt.getPatient().getId(), k -> new LinkedHashSet<>()).add(apt);
+        appointmentsByDoctor.computeIfAbsent(apt.getDoctor().getId(), k -> new LinkedHashSet<>()).add(apt);
+        scheduleIndex(apt);
+    }
+    
+    /**
+     * Remove an appointment from the patient and doctor reverse indexes and
+     * the doctor's day schedule.
+     */
+    private void unindexAppointment(Appointment apt) {
+        removeFromIndex(appointmentsByPatient, apt.getPatient().getId(), apt);
+        removeFromIndex(appointmentsByDoctor, apt.getDoctor().getId(), apt);
+        unscheduleAppointment(apt);
+    }
+    
+    /**
+     * Add an appointment to its doctor's day schedule and load counters. The
+     * schedule is sorted by start time, so the appointment must be removed
+     * with unscheduleAppointment before its date, times or doctor change.
+     */
+    private void scheduleIndex(Appointment apt) {
+        boolean added = doctorSchedules.computeIfAbsent(apt.getDoctor().getId(), k -> new TreeMap<>())
+                                       .computeIfAbsent(apt.getAppointmentDate(), k -> new TreeSet<>(BY_START_TIME))
+                                       .add(apt);
+        if (added && isBooked(apt)) {
+            adjustLoad(apt, 1);
+        }
+    }
+    
+    private void unscheduleAppointment(Appointment apt) {
+        NavigableMap<LocalDate, NavigableSet<Appointment>> schedule = doctorSchedules.get(apt.getDoctor().getId());
+        if (schedule == null) return;
+        NavigableSet<Appointment> day = schedule.get(apt.getAppointmentDate());
+        if (day == null || !day.remove(apt)) return;
+        if (isBooked(apt)) {
+            adjustLoad(apt, -1);
+        }
+        if (day.isEmpty()) {
+            schedule.remove(apt.getAppointmentDate());
+            if (schedule.isEmpty()) {
+                doctorSchedules.remove(apt.getDoctor().getId());
+            }
+        }
+    }
+    
+    private static void removeFromIndex(Map<Integer, Set<Appointment>> index, int key, Appointment apt) {
+        Set<Appointment> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(apt);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+    
     /**
      * Get total appointment count.
      */
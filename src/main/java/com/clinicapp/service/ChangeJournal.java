@@ -0,0 +1,112 @@
+package com.clinicapp.service;
+
+import java.util.*;
+
+/**
+ * ChangeJournal records the order in which a manager's records were
+ * created, modified or deleted. Every change takes the next modification
+ * sequence number and a record keeps only its latest one, so the changes
+ * after a watermark are a tail of a sorted map: reading them costs the
+ * number of changes since then, not the size of the table.
+ *
+ * Sequence numbers only have meaning within one journal. Each journal has
+ * a random ID so a watermark saved by an earlier run of the application
+ * can be recognised and not applied to a fresh journal.
+ */
+class ChangeJournal<T> {
+    // Identifies this journal in persisted watermarks
+    private final String id;
+
+    // Last sequence number handed out; 0 before the first change
+    private long sequence;
+
+    // Latest change sequence -> record, for records that still exist
+    private final NavigableMap<Long, T> changed;
+
+    // Latest change sequence -> ID, for records that were deleted
+    private final NavigableMap<Long, Integer> deleted;
+
+    // Record ID -> its latest change sequence
+    private final Map<Integer, Long> latest;
+
+    ChangeJournal() {
+        this.id = UUID.randomUUID().toString();
+        this.changed = new TreeMap<>();
+        this.deleted = new TreeMap<>();
+        this.latest = new HashMap<>();
+    }
+
+    /**
+     * Copy a journal, keeping its ID and sequence numbers so watermarks
+     * issued by the original stay valid against the copy.
+     */
+    ChangeJournal(ChangeJournal<T> other) {
+        this.id = other.id;
+        this.sequence = other.sequence;
+        this.changed = new TreeMap<>(other.changed);
+        this.deleted = new TreeMap<>(other.deleted);
+        this.latest = new HashMap<>(other.latest);
+    }
+
+    /**
+     * Record that a record was created or modified.
+     *
+     * @return The record's new modification sequence number
+     */
+    long recordChange(int recordId, T record) {
+        long seq = next(recordId);
+        changed.put(seq, record);
+        return seq;
+    }
+
+    /**
+     * Record that a record was deleted.
+     *
+     * @return The sequence number of the deletion
+     */
+    long recordDeletion(int recordId) {
+        long seq = next(recordId);
+        deleted.put(seq, recordId);
+        return seq;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The record's latest modification sequence number, or 0 if it never changed
+     */
+    long getSequence(int recordId) {
+        return latest.getOrDefault(recordId, 0L);
+    }
+
+    /**
+     * Records created or modified after a watermark and still present, in
+     * the order of their latest change. Read-only live view.
+     */
+    Collection<T> changedSince(long watermark) {
+        return Collections.unmodifiableCollection(changed.tailMap(watermark, false).values());
+    }
+
+    /**
+     * IDs of records deleted after a watermark, in deletion order.
+     */
+    List<Integer> deletedSince(long watermark) {
+        return new ArrayList<>(deleted.tailMap(watermark, false).values());
+    }
+
+    private long next(int recordId) {
+        long seq = ++sequence;
+        Long previous = latest.put(recordId, seq);
+        if (previous != null) {
+            changed.remove(previous);
+            deleted.remove(previous);
+        }
+        return seq;
+    }
+}
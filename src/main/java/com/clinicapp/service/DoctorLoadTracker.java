@@ -0,0 +1,148 @@
+package com.clinicapp.service;
+
+import com.clinicapp.model.Doctor;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * DoctorLoadTracker counts booked appointments per doctor per period (a day
+ * or an ISO week) and keeps, for each specialization and period that has
+ * been routed, the doctors ordered by load. Counters are adjusted as
+ * appointments are booked, moved and cancelled, so finding the least-loaded
+ * doctor is an ordered-set walk rather than a recount. A period's counters
+ * and groups are dropped when its last booking goes, so past and cancelled
+ * periods take no memory.
+ */
+class DoctorLoadTracker {
+    // Period start (epoch day) -> doctor ID -> booked appointments in the period
+    private final Map<Long, Map<Integer, Integer>> loads;
+
+    // Period start -> specialization key -> doctors of that specialization ordered by load;
+    // kept only for periods with bookings, and dropped with the period's last booking
+    private final Map<Long, Map<String, LoadGroup>> groups;
+
+    private final DoctorManager doctorManager;
+    private final boolean weekly;
+
+    /**
+     * Doctors of one specialization in one period, ordered by (load, ID).
+     * Each entry packs the load in the high 32 bits and the doctor ID in the low 32.
+     */
+    private static class LoadGroup {
+        final NavigableSet<Long> ordered = new TreeSet<>();
+        final Set<Integer> members = new HashSet<>();
+        long rosterVersion;
+    }
+
+    /**
+     * @param doctorManager Source of doctors for each specialization
+     * @param weekly true to count per ISO week (Monday to Sunday), false per day
+     */
+    DoctorLoadTracker(DoctorManager doctorManager, boolean weekly) {
+        this.loads = new HashMap<>();
+        this.groups = new HashMap<>();
+        this.doctorManager = doctorManager;
+        this.weekly = weekly;
+    }
+
+    /**
+     * Change a doctor's load for the period containing a date.
+     */
+    void adjust(Doctor doctor, LocalDate date, int delta) {
+        long period = periodOf(date);
+        Map<Integer, Integer> periodLoads = loads.computeIfAbsent(period, k -> new HashMap<>());
+        int oldLoad = periodLoads.getOrDefault(doctor.getId(), 0);
+        int newLoad = Math.max(0, oldLoad + delta);
+        if (newLoad == 0) {
+            periodLoads.remove(doctor.getId());
+            if (periodLoads.isEmpty()) {
+                loads.remove(period);
+                groups.remove(period);
+                return;
+            }
+        } else {
+            periodLoads.put(doctor.getId(), newLoad);
+        }
+
+        Map<String, LoadGroup> periodGroups = groups.get(period);
+        String key = DoctorManager.normalizeSpecialization(doctor.getSpecialization());
+        LoadGroup group = periodGroups != null ? periodGroups.get(key) : null;
+        if (group != null && group.members.contains(doctor.getId())) {
+            group.ordered.remove(entry(oldLoad, doctor.getId()));
+            group.ordered.add(entry(newLoad, doctor.getId()));
+        }
+    }
+
+    /**
+     * Get a doctor's load for the period containing a date.
+     */
+    int getLoad(int doctorId, LocalDate date) {
+        Map<Integer, Integer> periodLoads = loads.get(periodOf(date));
+        return periodLoads != null ? periodLoads.getOrDefault(doctorId, 0) : 0;
+    }
+
+    /**
+     * Find the least-loaded doctor of a specialization for the period
+     * containing a date, skipping doctors that fail the qualification check.
+     * Ties go to the lowest doctor ID.
+     *
+     * @param specialization Specialization to match exactly (ignoring case)
+     * @param date Any date in the period
+     * @param qualifies Check applied to doctors in ascending load order
+     * @return The first qualifying doctor, or null if none qualifies
+     */
+    Doctor findLeastLoaded(String specialization, LocalDate date, Predicate<Doctor> qualifies) {
+        LoadGroup group = getGroup(specialization, periodOf(date));
+        for (long entry : group.ordered) {
+            Doctor doctor = doctorManager.getDoctorById((int) entry);
+            if (doctor != null && qualifies.test(doctor)) {
+                return doctor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the ordered group for a specialization and period, (re)building it
+     * from the current counters if the doctor roster changed since it was built.
+     * A period with no bookings gets a group that is not kept, so routing
+     * into empty periods leaves nothing behind.
+     */
+    private LoadGroup getGroup(String specialization, long period) {
+        Map<Integer, Integer> periodLoads = loads.get(period);
+        long version = doctorManager.getRosterVersion();
+        if (periodLoads == null) {
+            LoadGroup group = new LoadGroup();
+            fill(group, specialization, Collections.emptyMap(), version);
+            return group;
+        }
+
+        String key = DoctorManager.normalizeSpecialization(specialization);
+        LoadGroup group = groups.computeIfAbsent(period, k -> new HashMap<>())
+                                .computeIfAbsent(key, k -> new LoadGroup());
+        if (group.members.isEmpty() || group.rosterVersion != version) {
+            fill(group, specialization, periodLoads, version);
+        }
+        return group;
+    }
+
+    private void fill(LoadGroup group, String specialization, Map<Integer, Integer> periodLoads, long version) {
+        group.ordered.clear();
+        group.members.clear();
+        for (Doctor doctor : doctorManager.getDoctorsBySpecialization(specialization)) {
+            group.members.add(doctor.getId());
+            group.ordered.add(entry(periodLoads.getOrDefault(doctor.getId(), 0), doctor.getId()));
+        }
+        group.rosterVersion = version;
+    }
+
+    private long periodOf(LocalDate date) {
+        return weekly ? date.with(DayOfWeek.MONDAY).toEpochDay() : date.toEpochDay();
+    }
+
+    private static long entry(int load, int doctorId) {
+        return ((long) load << 32) | (doctorId & 0xFFFFFFFFL);
+    }
+}
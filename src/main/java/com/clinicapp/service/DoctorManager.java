@@ -1,22 +1,53 @@
 package com.clinicapp.service;
 
 import com.clinicapp.model.Doctor;
+import com.clinicapp.model.ScheduleException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * DoctorManager handles all doctor-related operations including
  * adding, updating, deleting, and searching for doctors.
- * Uses a HashMap for efficient doctor lookup by ID.
+ * Uses a TreeMap for doctor lookup by ID in a stable ID order, plus
+ * specialization and availability indexes kept up to date on every change.
  */
 public class DoctorManager {
-    // HashMap for O(1) lookup by doctor ID
-    private final Map<Integer, Doctor> doctors;
+    // TreeMap keyed by doctor ID: O(log n) lookup and a stable ID order for paging
+    private final NavigableMap<Integer, Doctor> doctors;
+    
+    // Normalized specialization -> doctors with that specialization, in ID order
+    private final Map<String, NavigableMap<Integer, Doctor>> specializationIndex;
+    
+    // Specialization as written -> number of doctors, kept sorted for display
+    private final NavigableMap<String, Integer> specializationCatalog;
+    
+    // Doctors currently marked available, in ID order
+    private final NavigableMap<Integer, Doctor> availableDoctors;
+    
+    // Doctor ID -> leave and other schedule exceptions, sorted by time
+    private final Map<Integer, ScheduleExceptionIndex> scheduleExceptions;
+    
+    // Modification sequence per doctor, for incremental exports
+    private final ChangeJournal<Doctor> changes;
+    
+    // Incremented whenever a doctor is added, deleted or changes specialization
+    private long rosterVersion;
     
     /**
      * Constructor initializes the doctor storage.
      */
     public DoctorManager() {
-        this.doctors = new HashMap<>();
+        this.doctors = new TreeMap<>();
+        this.specializationIndex = new HashMap<>();
+        this.specializationCatalog = new TreeMap<>();
+        this.availableDoctors = new TreeMap<>();
+        this.scheduleExceptions = new HashMap<>();
+        this.changes = new ChangeJournal<>();
     }
     
     /**
@@ -37,6 +68,12 @@ public class DoctorManager {
         Doctor doctor = new Doctor(name, specialization, phoneNumber, email,
                                   availableDays, startTime, endTime);
         doctors.put(doctor.getId(), doctor);
+        indexSpecialization(doctor);
+        rosterVersion++;
+        if (doctor.isAvailable()) {
+            availableDoctors.put(doctor.getId(), doctor);
+        }
+        changes.recordChange(doctor.getId(), doctor);
         return doctor;
     }
     
@@ -59,19 +96,71 @@ public class DoctorManager {
         return new ArrayList<>(doctors.values());
     }
     
+    /**
+     * Get one page of doctors in ID order.
+     * 
+     * @param offset Number of doctors to skip
+     * @param limit Maximum number of doctors to return
+     * @return List of at most limit doctors
+     */
+    public List<Doctor> getDoctorsPage(int offset, int limit) {
+        return streamDoctors().skip(Math.max(0, offset)).limit(Math.max(0, limit))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Get the doctors following a cursor, in ID order. Pass the last ID of
+     * the previous page (or 0 for the first page); the cost does not grow
+     * with how far into the table the page is.
+     * 
+     * @param afterId Cursor: only doctors with a greater ID are returned
+     * @param limit Maximum number of doctors to return
+     * @return List of at most limit doctors
+     */
+    public List<Doctor> getDoctorsAfter(int afterId, int limit) {
+        List<Doctor> page = new ArrayList<>(Math.min(Math.max(0, limit), 1024));
+        Iterator<Doctor> it = doctors.tailMap(afterId, false).values().iterator();
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+    
+    /**
+     * Stream all doctors in ID order without copying them into a list.
+     * The manager must not be modified while the stream is in use.
+     * 
+     * @return Sequential stream of doctors; call parallel() to split it
+     */
+    public Stream<Doctor> streamDoctors() {
+        return StreamSupport.stream(doctorSpliterator(), false);
+    }
+    
+    /**
+     * Spliterator over all doctors in ID order. This is the TreeMap's own
+     * spliterator, which splits along the tree for parallel streams; it
+     * reports ORDERED and, until it is split, SIZED.
+     */
+    public Spliterator<Doctor> doctorSpliterator() {
+        return doctors.values().spliterator();
+    }
+    
     /**
      * Get only available doctors.
      * 
      * @return List of available doctors
      */
     public List<Doctor> getAvailableDoctors() {
-        List<Doctor> available = new ArrayList<>();
-        for (Doctor doctor : doctors.values()) {
-            if (doctor.isAvailable()) {
-                available.add(doctor);
-            }
-        }
-        return available;
+        return new ArrayList<>(availableDoctors.values());
+    }
+    
+    /**
+     * Get the number of available doctors without copying them.
+     * 
+     * @return Count of available doctors
+     */
+    public int getAvailableDoctorCount() {
+        return availableDoctors.size();
     }
     
     /**
@@ -95,20 +184,83 @@ public class DoctorManager {
     
     /**
      * Search for doctors by specialization (case-insensitive partial match).
+     * The term is matched against the distinct specializations in the index,
+     * not against every doctor.
      * 
      * @param specialization Specialization to search for
      * @return List of matching doctors
      */
     public List<Doctor> searchDoctorsBySpecialization(String specialization) {
+        String searchTerm = normalizeSpecialization(specialization);
+        NavigableMap<Integer, Doctor> results = new TreeMap<>();
+        for (Map.Entry<String, NavigableMap<Integer, Doctor>> entry : specializationIndex.entrySet()) {
+            if (entry.getKey().contains(searchTerm)) {
+                results.putAll(entry.getValue());
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+    
+    /**
+     * Get the doctors with exactly the given specialization (ignoring case).
+     * 
+     * @param specialization Specialization to look up
+     * @return List of matching doctors in ID order
+     */
+    public List<Doctor> getDoctorsBySpecialization(String specialization) {
+        NavigableMap<Integer, Doctor> matches = specializationIndex.get(normalizeSpecialization(specialization));
+        return matches != null ? new ArrayList<>(matches.values()) : new ArrayList<>();
+    }
+    
+    /**
+     * Get the available doctors with exactly the given specialization
+     * (ignoring case). Only that specialization's doctors are visited.
+     * 
+     * @param specialization Specialization to look up
+     * @return List of available matching doctors in ID order
+     */
+    public List<Doctor> getAvailableDoctorsBySpecialization(String specialization) {
         List<Doctor> results = new ArrayList<>();
-        String searchTerm = specialization.toLowerCase();
+        NavigableMap<Integer, Doctor> matches = specializationIndex.get(normalizeSpecialization(specialization));
+        if (matches != null) {
+            for (Doctor doctor : matches.values()) {
+                if (doctor.isAvailable()) {
+                    results.add(doctor);
+                }
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Find the doctors of a specialization who are marked available, whose
+     * working calendar covers the whole interval and who are not on leave. Bookings are not considered;
+     * use AppointmentManager.findAvailableDoctors to also exclude doctors who
+     * are already booked.
+     * 
+     * @param specialization Specialization to match exactly (ignoring case),
+     *                       or null/empty for any specialization
+     * @param date Date of the interval
+     * @param startTime Start of the interval
+     * @param endTime End of the interval
+     * @return List of matching doctors in ID order
+     */
+    public List<Doctor> findAvailableDoctors(String specialization, LocalDate date,
+                                             LocalTime startTime, LocalTime endTime) {
+        Collection<Doctor> candidates;
+        if (specialization == null || specialization.trim().isEmpty()) {
+            candidates = availableDoctors.values();
+        } else {
+            NavigableMap<Integer, Doctor> matches = specializationIndex.get(normalizeSpecialization(specialization));
+            candidates = matches != null ? matches.values() : Collections.emptyList();
+        }
         
-        for (Doctor doctor : doctors.values()) {
-            if (doctor.getSpecialization().toLowerCase().contains(searchTerm)) {
+        List<Doctor> results = new ArrayList<>();
+        for (Doctor doctor : candidates) {
+            if (doctor.isAvailable() && isScheduledToWork(doctor, date, startTime, endTime)) {
                 results.add(doctor);
             }
         }
-        
         return results;
     }
     
@@ -135,13 +287,19 @@ public class DoctorManager {
         
         // Update only non-null fields
         if (name != null) doctor.setName(name);
-        if (specialization != null) doctor.setSpecialization(specialization);
+        if (specialization != null && !specialization.equals(doctor.getSpecialization())) {
+            unindexSpecialization(doctor);
+            doctor.setSpecialization(specialization);
+            indexSpecialization(doctor);
+            rosterVersion++;
+        }
         if (phoneNumber != null) doctor.setPhoneNumber(phoneNumber);
         if (email != null) doctor.setEmail(email);
         if (availableDays != null) doctor.setAvailableDays(availableDays);
         if (startTime != null) doctor.setStartTime(startTime);
         if (endTime != null) doctor.setEndTime(endTime);
         
+        changes.recordChange(id, doctor);
         return true;
     }
     
@@ -158,6 +316,12 @@ public class DoctorManager {
             return false;
         }
         doctor.setAvailable(available);
+        if (available) {
+            availableDoctors.put(id, doctor);
+        } else {
+            availableDoctors.remove(id);
+        }
+        changes.recordChange(id, doctor);
         return true;
     }
     
@@ -168,7 +332,147 @@ public class DoctorManager {
      * @return true if doctor was found and deleted, false otherwise
      */
     public boolean deleteDoctor(int id) {
-        return doctors.remove(id) != null;
+        Doctor doctor = doctors.remove(id);
+        if (doctor == null) {
+            return false;
+        }
+        unindexSpecialization(doctor);
+        availableDoctors.remove(id);
+        scheduleExceptions.remove(id);
+        rosterVersion++;
+        changes.recordDeletion(id);
+        return true;
+    }
+    
+    /**
+     * Get the ID of this manager's change journal. A watermark is only
+     * valid against the journal that issued it.
+     */
+    public String getChangeJournalId() {
+        return changes.getId();
+    }
+    
+    /**
+     * Get the latest modification sequence number. Every create, update and
+     * delete takes the next number, so this is the watermark that covers
+     * all changes made so far.
+     * 
+     * @return Latest sequence number, 0 if nothing has changed yet
+     */
+    public long getChangeSequence() {
+        return changes.getSequence();
+    }
+    
+    /**
+     * Get the sequence number of a doctor's latest create, update or delete.
+     * 
+     * @param id Doctor ID
+     * @return Sequence number, 0 if the doctor never existed
+     */
+    public long getModificationSequence(int id) {
+        return changes.getSequence(id);
+    }
+    
+    /**
+     * Stream the doctors created or modified after a watermark that still
+     * exist, in the order of their latest change. Only the changed doctors
+     * are visited. The manager must not be modified while the stream is in use.
+     * 
+     * @param watermark Sequence number from an earlier getChangeSequence()
+     * @return Sequential stream of changed doctors
+     */
+    public Stream<Doctor> streamDoctorsChangedSince(long watermark) {
+        return changes.changedSince(watermark).stream();
+    }
+    
+    /**
+     * Get the IDs of doctors deleted after a watermark.
+     * 
+     * @param watermark Sequence number from an earlier getChangeSequence()
+     * @return List of deleted IDs in deletion order
+     */
+    public List<Integer> getDoctorsDeletedSince(long watermark) {
+        return changes.deletedSince(watermark);
+    }
+    
+    /**
+     * Record a period when a doctor does not see patients (vacation,
+     * conference, half day, ...).
+     * 
+     * @param doctorId Doctor ID
+     * @param start Start of the period (inclusive)
+     * @param end End of the period (exclusive)
+     * @param reason Reason shown to staff
+     * @return The new ScheduleException, or null if the doctor was not found
+     *         or the period is empty
+     */
+    public ScheduleException addScheduleException(int doctorId, LocalDateTime start,
+                                                  LocalDateTime end, String reason) {
+        if (!doctors.containsKey(doctorId) || start == null || end == null || !end.isAfter(start)) {
+            return null;
+        }
+        ScheduleException exception = new ScheduleException(doctorId, start, end, reason);
+        scheduleExceptions.computeIfAbsent(doctorId, k -> new ScheduleExceptionIndex()).add(exception);
+        return exception;
+    }
+    
+    /**
+     * Remove a schedule exception.
+     * 
+     * @param doctorId Doctor ID
+     * @param exceptionId Exception ID to remove
+     * @return true if the exception was found and removed
+     */
+    public boolean removeScheduleException(int doctorId, int exceptionId) {
+        ScheduleExceptionIndex index = scheduleExceptions.get(doctorId);
+        if (index == null || !index.remove(exceptionId)) {
+            return false;
+        }
+        if (index.isEmpty()) {
+            scheduleExceptions.remove(doctorId);
+        }
+        return true;
+    }
+    
+    /**
+     * Get all of a doctor's schedule exceptions in start order.
+     */
+    public List<ScheduleException> getScheduleExceptions(int doctorId) {
+        ScheduleExceptionIndex index = scheduleExceptions.get(doctorId);
+        return index != null ? index.getAll() : new ArrayList<>();
+    }
+    
+    /**
+     * Get a doctor's schedule exceptions that overlap a date range (inclusive).
+     */
+    public List<ScheduleException> getScheduleExceptions(int doctorId, LocalDate from, LocalDate to) {
+        ScheduleExceptionIndex index = scheduleExceptions.get(doctorId);
+        return index != null ? index.between(from.atStartOfDay(), to.plusDays(1).atStartOfDay())
+                             : new ArrayList<>();
+    }
+    
+    /**
+     * Check whether any schedule exception overlaps an interval. O(log n) in
+     * the number of the doctor's exceptions.
+     * 
+     * @param doctorId Doctor ID
+     * @param date Date of the interval
+     * @param startTime Start of the interval
+     * @param endTime End of the interval
+     * @return true if the doctor is on leave for any part of the interval
+     */
+    public boolean isOnLeave(int doctorId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        ScheduleExceptionIndex index = scheduleExceptions.get(doctorId);
+        return index != null && index.overlaps(date.atTime(startTime), date.atTime(endTime));
+    }
+    
+    /**
+     * Check whether a doctor's weekly calendar covers an interval and no
+     * schedule exception overlaps it. The availability flag is not checked.
+     */
+    public boolean isScheduledToWork(Doctor doctor, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return doctor.getCalendar().covers(date, startTime, endTime)
+            && !isOnLeave(doctor.getId(), date, startTime, endTime);
     }
     
     /**
@@ -193,13 +497,55 @@ public class DoctorManager {
     /**
      * Get unique list of all specializations in the system.
      * 
-     * @return Set of specializations
+     * @return Sorted, read-only live view of the specializations
      */
     public Set<String> getAllSpecializations() {
-        Set<String> specializations = new HashSet<>();
-        for (Doctor doctor : doctors.values()) {
-            specializations.add(doctor.getSpecialization());
+        return Collections.unmodifiableSet(specializationCatalog.keySet());
+    }
+    
+    /**
+     * Get the number of doctors with a specialization as written.
+     * 
+     * @param specialization Specialization from the catalog
+     * @return Count of doctors, 0 if none
+     */
+    public int getDoctorCountBySpecialization(String specialization) {
+        return specialization == null ? 0 : specializationCatalog.getOrDefault(specialization, 0);
+    }
+    
+    /**
+     * Get a counter that changes whenever the set of doctors in any
+     * specialization changes, so derived per-specialization data can tell
+     * when to rebuild.
+     */
+    long getRosterVersion() {
+        return rosterVersion;
+    }
+    
+    private void indexSpecialization(Doctor doctor) {
+        specializationIndex.computeIfAbsent(normalizeSpecialization(doctor.getSpecialization()), k -> new TreeMap<>())
+                           .put(doctor.getId(), doctor);
+        if (doctor.getSpecialization() != null) {
+            specializationCatalog.merge(doctor.getSpecialization(), 1, Integer::sum);
+        }
+    }
+    
+    private void unindexSpecialization(Doctor doctor) {
+        String key = normalizeSpecialization(doctor.getSpecialization());
+        NavigableMap<Integer, Doctor> bucket = specializationIndex.get(key);
+        if (bucket != null) {
+            bucket.remove(doctor.getId());
+            if (bucket.isEmpty()) {
+                specializationIndex.remove(key);
+            }
+        }
+        if (doctor.getSpecialization() != null) {
+            specializationCatalog.computeIfPresent(doctor.getSpecialization(),
+                                                   (k, count) -> count > 1 ? count - 1 : null);
         }
-        return specializations;
+    }
+    
+    static String normalizeSpecialization(String specialization) {
+        return specialization == null ? "" : specialization.trim().toLowerCase();
     }
 }
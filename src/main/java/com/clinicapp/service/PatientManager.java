@@ -1,23 +1,69 @@
 package com.clinicapp.service;
 
 import com.clinicapp.model.Patient;
+import com.clinicapp.model.ValueDictionary;
+import com.clinicapp.util.InputValidator;
+import com.clinicapp.util.NameMatcher;
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * PatientManager handles all patient-related operations including
  * adding, updating, deleting, and searching for patients.
- * Uses a HashMap for efficient patient lookup by ID.
+ * Uses a TreeMap for patient lookup by ID in a stable ID order.
+ * 
+ * All-or-nothing imports go through a staging copy (stageImport): rows are
+ * added to the copy, and publishImport swaps the copy's structures in by
+ * reassigning this manager's fields, so publishing takes the same time
+ * for any number of rows and readers see all of the import or none of it.
  */
 public class PatientManager {
-    // HashMap for O(1) lookup by patient ID
-    private final Map<Integer, Patient> patients;
+    // TreeMap keyed by patient ID: O(log n) lookup and a stable ID order for paging
+    private NavigableMap<Integer, Patient> patients;
+    
+    // BK-tree and phonetic index over name tokens for fuzzy lookup
+    private PatientNameIndex nameIndex;
+    
+    // TreeMaps keyed by date of birth and by birthday (month/day) for range scans
+    private NavigableMap<LocalDate, Set<Patient>> dateOfBirthIndex;
+    private NavigableMap<MonthDay, Set<Patient>> birthdayIndex;
+    
+    // Hash indexes on normalized phone, email and name+DOB for duplicate detection
+    private Map<String, Set<Patient>> phoneIndex;
+    private Map<String, Set<Patient>> emailIndex;
+    private Map<String, Set<Patient>> nameDobIndex;
+    
+    // Keys of the phone and name+DOB buckets holding two or more patients,
+    // so duplicate scans visit only those buckets
+    private Set<String> sharedPhones;
+    private Set<String> sharedNameDobs;
+    
+    // Modification sequence per patient, for incremental exports
+    private ChangeJournal<Patient> changes;
+    
+    // Set on a copy made by stageImport: the manager it was copied from
+    // and that manager's change sequence at the time
+    private PatientManager stagedFrom;
+    private long stagedAtSequence;
     
     /**
      * Constructor initializes the patient storage.
      */
     public PatientManager() {
-        this.patients = new HashMap<>();
+        this.patients = new TreeMap<>();
+        this.nameIndex = new PatientNameIndex();
+        this.dateOfBirthIndex = new TreeMap<>();
+        this.birthdayIndex = new TreeMap<>();
+        this.phoneIndex = new HashMap<>();
+        this.emailIndex = new HashMap<>();
+        this.nameDobIndex = new HashMap<>();
+        this.sharedPhones = new HashSet<>();
+        this.sharedNameDobs = new HashSet<>();
+        this.changes = new ChangeJournal<>();
     }
     
     /**
@@ -39,9 +85,31 @@ public class PatientManager {
         Patient patient = new Patient(name, dateOfBirth, gender, phoneNumber, 
                                      email, address, bloodType, allergies);
         patients.put(patient.getId(), patient);
+        nameIndex.add(patient);
+        indexDateOfBirth(patient);
+        indexDuplicateKeys(patient);
+        changes.recordChange(patient.getId(), patient);
         return patient;
     }
     
+    /**
+     * Register a new patient unless they duplicate an existing one, i.e.
+     * findDuplicate finds a patient with the same name and date of birth or
+     * the same phone number and email. Registration screens should use this
+     * rather than addPatient, which adds unconditionally for imports that
+     * handle duplicates themselves.
+     * 
+     * @return The newly created Patient object, or null if a duplicate is already registered
+     */
+    public Patient registerPatient(String name, LocalDate dateOfBirth, String gender,
+                                   String phoneNumber, String email, String address,
+                                   String bloodType, String allergies) {
+        if (findDuplicate(name, dateOfBirth, phoneNumber, email) != null) {
+            return null;
+        }
+        return addPatient(name, dateOfBirth, gender, phoneNumber, email, address, bloodType, allergies);
+    }
+    
     /**
      * Get a patient by their ID.
      * 
@@ -61,6 +129,55 @@ public class PatientManager {
         return new ArrayList<>(patients.values());
     }
     
+    /**
+     * Get one page of patients in ID order.
+     * 
+     * @param offset Number of patients to skip
+     * @param limit Maximum number of patients to return
+     * @return List of at most limit patients
+     */
+    public List<Patient> getPatientsPage(int offset, int limit) {
+        return streamPatients().skip(Math.max(0, offset)).limit(Math.max(0, limit))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Get the patients following a cursor, in ID order. Pass the last ID of
+     * the previous page (or 0 for the first page); the cost does not grow
+     * with how far into the table the page is.
+     * 
+     * @param afterId Cursor: only patients with a greater ID are returned
+     * @param limit Maximum number of patients to return
+     * @return List of at most limit patients
+     */
+    public List<Patient> getPatientsAfter(int afterId, int limit) {
+        List<Patient> page = new ArrayList<>(Math.min(Math.max(0, limit), 1024));
+        Iterator<Patient> it = patients.tailMap(afterId, false).values().iterator();
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+    
+    /**
+     * Stream all patients in ID order without copying them into a list.
+     * The manager must not be modified while the stream is in use.
+     * 
+     * @return Sequential stream of patients; call parallel() to split it
+     */
+    public Stream<Patient> streamPatients() {
+        return StreamSupport.stream(patientSpliterator(), false);
+    }
+    
+    /**
+     * Spliterator over all patients in ID order. This is the TreeMap's own
+     * spliterator, which splits along the tree for parallel streams; it
+     * reports ORDERED and, until it is split, SIZED.
+     */
+    public Spliterator<Patient> patientSpliterator() {
+        return patients.values().spliterator();
+    }
+    
     /**
      * Search for patients by name (case-insensitive partial match).
      * 
@@ -80,6 +197,34 @@ public class PatientManager {
         return results;
     }
     
+    /**
+     * Fuzzy search for patients by name, tolerating misspellings.
+     * Matches name tokens within a small edit distance (scaled by token
+     * length) or with the same Soundex key, e.g. "Jon Smyth" finds "John Smith".
+     * 
+     * @param name Name to search for, possibly misspelled
+     * @return List of matching patients, best match first
+     */
+    public List<Patient> fuzzySearchPatientsByName(String name) {
+        return fuzzySearchPatientsByName(name, -1);
+    }
+    
+    /**
+     * Fuzzy search for patients by name with an explicit edit distance bound.
+     * Phonetic (Soundex) matches are always included.
+     * 
+     * @param name Name to search for, possibly misspelled
+     * @param maxDistance Maximum edits allowed per name token
+     * @return List of matching patients, best match first
+     */
+    public List<Patient> fuzzySearchPatientsByName(String name, int maxDistance) {
+        List<Patient> results = new ArrayList<>();
+        for (int id : nameIndex.search(name, maxDistance)) {
+            results.add(patients.get(id));
+        }
+        return results;
+    }
+    
     /**
      * Update patient information.
      * 
@@ -102,9 +247,19 @@ public class PatientManager {
             return false;
         }
         
+        unindexDuplicateKeys(patient);
+        
         // Update only non-null fields
-        if (name != null) patient.setName(name);
-        if (dateOfBirth != null) patient.setDateOfBirth(dateOfBirth);
+        if (name != null) {
+            nameIndex.remove(id, patient.getName());
+            patient.setName(name);
+            nameIndex.add(patient);
+        }
+        if (dateOfBirth != null) {
+            unindexDateOfBirth(patient);
+            patient.setDateOfBirth(dateOfBirth);
+            indexDateOfBirth(patient);
+        }
         if (gender != null) patient.setGender(gender);
         if (phoneNumber != null) patient.setPhoneNumber(phoneNumber);
         if (email != null) patient.setEmail(email);
@@ -112,6 +267,8 @@ public class PatientManager {
         if (bloodType != null) patient.setBloodType(bloodType);
         if (allergies != null) patient.setAllergies(allergies);
         
+        indexDuplicateKeys(patient);
+        changes.recordChange(id, patient);
         return true;
     }
     
@@ -122,7 +279,117 @@ public class PatientManager {
      * @return true if patient was found and deleted, false otherwise
      */
     public boolean deletePatient(int id) {
-        return patients.remove(id) != null;
+        Patient removed = patients.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        nameIndex.remove(id, removed.getName());
+        unindexDateOfBirth(removed);
+        unindexDuplicateKeys(removed);
+        changes.recordDeletion(id);
+        return true;
+    }
+    
+    /**
+     * Get the ID of this manager's change journal. A watermark is only
+     * valid against the journal that issued it.
+     */
+    public String getChangeJournalId() {
+        return changes.getId();
+    }
+    
+    /**
+     * Get the latest modification sequence number. Every create, update and
+     * delete takes the next number, so this is the watermark that covers
+     * all changes made so far.
+     * 
+     * @return Latest sequence number, 0 if nothing has changed yet
+     */
+    public long getChangeSequence() {
+        return changes.getSequence();
+    }
+    
+    /**
+     * Get the sequence number of a patient's latest create, update or delete.
+     * 
+     * @param id Patient ID
+     * @return Sequence number, 0 if the patient never existed
+     */
+    public long getModificationSequence(int id) {
+        return changes.getSequence(id);
+    }
+    
+    /**
+     * Stream the patients created or modified after a watermark that still
+     * exist, in the order of their latest change. Only the changed patients
+     * are visited. The manager must not be modified while the stream is in use.
+     * 
+     * @param watermark Sequence number from an earlier getChangeSequence()
+     * @return Sequential stream of changed patients
+     */
+    public Stream<Patient> streamPatientsChangedSince(long watermark) {
+        return changes.changedSince(watermark).stream();
+    }
+    
+    /**
+     * Get the IDs of patients deleted after a watermark.
+     * 
+     * @param watermark Sequence number from an earlier getChangeSequence()
+     * @return List of deleted IDs in deletion order
+     */
+    public List<Integer> getPatientsDeletedSince(long watermark) {
+        return changes.deletedSince(watermark);
+    }
+    
+    /**
+     * Make a private copy of this manager to import into. Patients added to
+     * the copy stay invisible here until publishImport, so a failed import
+     * just drops the copy. The copy shares the Patient objects and must not
+     * update existing patients, since those changes would show here at once.
+     * Building it re-indexes every patient but only reads this manager, so
+     * it may run on a worker thread while nothing modifies the manager.
+     * 
+     * @return A staging manager holding the same patients
+     */
+    public PatientManager stageImport() {
+        long sequence = changes.getSequence();
+        PatientManager staged = new PatientManager();
+        for (Patient patient : patients.values()) {
+            staged.patients.put(patient.getId(), patient);
+            staged.nameIndex.add(patient);
+            staged.indexDateOfBirth(patient);
+            staged.indexDuplicateKeys(patient);
+        }
+        staged.changes = new ChangeJournal<>(changes);
+        staged.stagedFrom = this;
+        staged.stagedAtSequence = sequence;
+        return staged;
+    }
+    
+    /**
+     * Replace this manager's contents with a copy from stageImport in one
+     * step. The copy must not be used afterwards.
+     * 
+     * @param staged Staging copy holding the imported patients
+     * @return true if published; false if the copy was not staged from this
+     *         manager, was already published, or this manager has changed since
+     */
+    public boolean publishImport(PatientManager staged) {
+        if (staged.stagedFrom != this || changes.getSequence() != staged.stagedAtSequence) {
+            return false;
+        }
+        patients = staged.patients;
+        nameIndex = staged.nameIndex;
+        dateOfBirthIndex = staged.dateOfBirthIndex;
+        birthdayIndex = staged.birthdayIndex;
+        phoneIndex = staged.phoneIndex;
+        emailIndex = staged.emailIndex;
+        nameDobIndex = staged.nameDobIndex;
+        sharedPhones = staged.sharedPhones;
+        sharedNameDobs = staged.sharedNameDobs;
+        changes = staged.changes;
+        staged.stagedFrom = null;
+        return true;
     }
     
     /**
@@ -146,16 +413,20 @@ public class PatientManager {
     
     /**
      * Get patients by gender.
+     * The gender is resolved to dictionary codes once, so the scan
+     * compares integers instead of lower-casing every patient's gender.
      * 
      * @param gender Gender to filter by
      * @return List of patients with matching gender
      */
     public List<Patient> getPatientsByGender(String gender) {
         List<Patient> results = new ArrayList<>();
-        String searchGender = gender.toLowerCase();
+        boolean[] matchingCodes = ValueDictionary.GENDERS.matchIgnoreCase(gender);
         
         for (Patient patient : patients.values()) {
-            if (patient.getGender().toLowerCase().equals(searchGender)) {
+            int code = patient.getGenderCode();
+            if (code == ValueDictionary.UNLISTED ? patient.getGender().equalsIgnoreCase(gender)
+                                                 : ValueDictionary.matches(matchingCodes, code)) {
                 results.add(patient);
             }
         }
@@ -165,21 +436,310 @@ public class PatientManager {
     
     /**
      * Get patients within a specific age range.
+     * Age is the difference in birth years (see Patient.getAge), so the range
+     * maps to a date-of-birth range that is scanned from the index.
      * 
      * @param minAge Minimum age (inclusive)
      * @param maxAge Maximum age (inclusive)
-     * @return List of patients within age range
+     * @return List of patients within age range, oldest first
      */
     public List<Patient> getPatientsByAgeRange(int minAge, int maxAge) {
+        if (minAge > maxAge) {
+            return new ArrayList<>();
+        }
+        int currentYear = LocalDate.now().getYear();
+        LocalDate earliest = LocalDate.of(currentYear - maxAge, 1, 1);
+        LocalDate latest = LocalDate.of(currentYear - minAge, 12, 31);
+        return getPatientsBornBetween(earliest, latest);
+    }
+    
+    /**
+     * Get patients born within a date range.
+     * 
+     * @param from Earliest date of birth (inclusive)
+     * @param to Latest date of birth (inclusive)
+     * @return List of matching patients ordered by date of birth
+     */
+    public List<Patient> getPatientsBornBetween(LocalDate from, LocalDate to) {
         List<Patient> results = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return results;
+        }
+        for (Set<Patient> bucket : dateOfBirthIndex.subMap(from, true, to, true).values()) {
+            results.addAll(bucket);
+        }
+        return results;
+    }
+    
+    /**
+     * Get patients whose birthday falls within a date range (e.g. this week).
+     * Ranges that cross New Year wrap around; ranges of a year or more
+     * return every patient.
+     * 
+     * @param from First day of the range (inclusive)
+     * @param to Last day of the range (inclusive)
+     * @return List of matching patients ordered by birthday
+     */
+    public List<Patient> getPatientsWithBirthdayBetween(LocalDate from, LocalDate to) {
+        List<Patient> results = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return results;
+        }
         
-        for (Patient patient : patients.values()) {
-            int age = patient.getAge();
-            if (age >= minAge && age <= maxAge) {
-                results.add(patient);
+        Collection<Set<Patient>> buckets;
+        MonthDay start = MonthDay.from(from);
+        MonthDay end = MonthDay.from(to);
+        if (!from.plusYears(1).isAfter(to)) {
+            buckets = birthdayIndex.values();
+        } else if (!start.isAfter(end)) {
+            buckets = birthdayIndex.subMap(start, true, end, true).values();
+        } else {
+            // Range crosses New Year: scan to the end of the year, then from January
+            buckets = new ArrayList<>(birthdayIndex.tailMap(start, true).values());
+            buckets.addAll(birthdayIndex.headMap(end, true).values());
+        }
+        
+        for (Set<Patient> bucket : buckets) {
+            results.addAll(bucket);
+        }
+        return results;
+    }
+    
+    /**
+     * Find the existing patient that a new registration duplicates.
+     * A duplicate has the same name and date of birth, or the same phone
+     * number and email (after normalization). Each check is a hash lookup.
+     * 
+     * @return The matching patient with the lowest ID, or null if none
+     */
+    public Patient findDuplicate(String name, LocalDate dateOfBirth, String phoneNumber, String email) {
+        Patient best = null;
+        Set<Patient> sameNameDob = nameDobIndex.get(nameDobKey(name, dateOfBirth));
+        if (sameNameDob != null) {
+            for (Patient candidate : sameNameDob) {
+                if (best == null || candidate.getId() < best.getId()) best = candidate;
+            }
+        }
+        
+        String normalizedEmail = InputValidator.normalizeEmail(email);
+        Set<Patient> samePhone = phoneIndex.get(InputValidator.normalizePhoneNumber(phoneNumber));
+        if (samePhone != null && normalizedEmail != null) {
+            for (Patient candidate : samePhone) {
+                if (normalizedEmail.equals(InputValidator.normalizeEmail(candidate.getEmail()))
+                        && (best == null || candidate.getId() < best.getId())) {
+                    best = candidate;
+                }
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Find patients sharing any of name+DOB, phone number or email with the
+     * given details. Phones and emails are often shared within a family, so
+     * these are candidates for review rather than certain duplicates.
+     * 
+     * @return List of candidate patients ordered by ID
+     */
+    public List<Patient> findPossibleDuplicates(String name, LocalDate dateOfBirth,
+                                                String phoneNumber, String email) {
+        Set<Patient> candidates = new HashSet<>();
+        addAllIfPresent(candidates, nameDobIndex.get(nameDobKey(name, dateOfBirth)));
+        addAllIfPresent(candidates, phoneIndex.get(InputValidator.normalizePhoneNumber(phoneNumber)));
+        addAllIfPresent(candidates, emailIndex.get(InputValidator.normalizeEmail(email)));
+        
+        List<Patient> results = new ArrayList<>(candidates);
+        results.sort(Comparator.comparingInt(Patient::getId));
+        return results;
+    }
+    
+    /**
+     * Find clusters of existing patients that duplicate each other
+     * (same name and date of birth, or same phone and email), linked
+     * transitively.
+     * 
+     * @return List of clusters, each with two or more patients ordered by ID
+     */
+    public List<List<Patient>> findDuplicateClusters() {
+        return clusterDuplicates(getDuplicateGroups());
+    }
+    
+    /**
+     * Snapshot the groups of patients sharing a duplicate key. Only the
+     * buckets with two or more patients are visited, so the cost follows
+     * the number of suspected duplicates rather than all patients; the
+     * result can be handed to clusterDuplicates on a background thread
+     * while the manager keeps serving the UI.
+     * 
+     * @return Groups of patients that duplicate each other pairwise
+     */
+    public List<List<Patient>> getDuplicateGroups() {
+        List<List<Patient>> groups = new ArrayList<>();
+        for (String key : sharedNameDobs) {
+            groups.add(new ArrayList<>(nameDobIndex.get(key)));
+        }
+        for (String key : sharedPhones) {
+            Set<Patient> bucket = phoneIndex.get(key);
+            // Within a shared phone, only patients that also share an email are duplicates
+            Map<String, List<Patient>> byEmail = new HashMap<>();
+            for (Patient patient : bucket) {
+                String email = InputValidator.normalizeEmail(patient.getEmail());
+                if (email != null) {
+                    byEmail.computeIfAbsent(email, k -> new ArrayList<>()).add(patient);
+                }
+            }
+            for (List<Patient> group : byEmail.values()) {
+                if (group.size() > 1) {
+                    groups.add(group);
+                }
+            }
+        }
+        return groups;
+    }
+    
+    /**
+     * Merge overlapping duplicate groups into clusters (union-find by patient ID).
+     * Touches no manager state, so it is safe to run on a background thread.
+     * 
+     * @param groups Groups from getDuplicateGroups
+     * @return List of clusters, each ordered by ID, largest cluster first
+     */
+    public static List<List<Patient>> clusterDuplicates(List<List<Patient>> groups) {
+        Map<Patient, Patient> parent = new HashMap<>();
+        for (List<Patient> group : groups) {
+            for (Patient patient : group) {
+                parent.putIfAbsent(patient, patient);
             }
         }
+        for (List<Patient> group : groups) {
+            Patient first = findRoot(parent, group.get(0));
+            for (int i = 1; i < group.size(); i++) {
+                Patient other = findRoot(parent, group.get(i));
+                if (other != first) {
+                    // Keep the lowest ID as the root
+                    if (other.getId() < first.getId()) {
+                        parent.put(first, other);
+                        first = other;
+                    } else {
+                        parent.put(other, first);
+                    }
+                }
+            }
+        }
+        
+        Map<Patient, List<Patient>> clusters = new HashMap<>();
+        for (Patient patient : parent.keySet()) {
+            clusters.computeIfAbsent(findRoot(parent, patient), k -> new ArrayList<>()).add(patient);
+        }
         
+        List<List<Patient>> results = new ArrayList<>(clusters.values());
+        for (List<Patient> cluster : results) {
+            cluster.sort(Comparator.comparingInt(Patient::getId));
+        }
+        results.sort(Comparator.comparingInt((List<Patient> c) -> -c.size())
+                               .thenComparingInt(c -> c.get(0).getId()));
         return results;
     }
+    
+    private static Patient findRoot(Map<Patient, Patient> parent, Patient patient) {
+        Patient root = patient;
+        while (parent.get(root) != root) {
+            root = parent.get(root);
+        }
+        // Path compression
+        while (patient != root) {
+            Patient next = parent.get(patient);
+            parent.put(patient, root);
+            patient = next;
+        }
+        return root;
+    }
+    
+    /**
+     * Add a patient to the phone, email and name+DOB indexes.
+     */
+    private void indexDuplicateKeys(Patient patient) {
+        String phone = InputValidator.normalizePhoneNumber(patient.getPhoneNumber());
+        if (addToBucket(phoneIndex, phone, patient) > 1) {
+            sharedPhones.add(phone);
+        }
+        addToBucket(emailIndex, InputValidator.normalizeEmail(patient.getEmail()), patient);
+        String nameDob = nameDobKey(patient.getName(), patient.getDateOfBirth());
+        if (addToBucket(nameDobIndex, nameDob, patient) > 1) {
+            sharedNameDobs.add(nameDob);
+        }
+    }
+    
+    /**
+     * Remove a patient from the phone, email and name+DOB indexes.
+     */
+    private void unindexDuplicateKeys(Patient patient) {
+        String phone = InputValidator.normalizePhoneNumber(patient.getPhoneNumber());
+        if (removeFromBucket(phoneIndex, phone, patient) < 2) {
+            sharedPhones.remove(phone);
+        }
+        removeFromBucket(emailIndex, InputValidator.normalizeEmail(patient.getEmail()), patient);
+        String nameDob = nameDobKey(patient.getName(), patient.getDateOfBirth());
+        if (removeFromBucket(nameDobIndex, nameDob, patient) < 2) {
+            sharedNameDobs.remove(nameDob);
+        }
+    }
+    
+    /**
+     * Build the name+DOB key: lower-case name tokens and the ISO date.
+     */
+    private static String nameDobKey(String name, LocalDate dateOfBirth) {
+        if (name == null || dateOfBirth == null) return null;
+        return String.join(" ", NameMatcher.tokenize(name)) + "|" + dateOfBirth;
+    }
+    
+    private static void addAllIfPresent(Set<Patient> target, Set<Patient> bucket) {
+        if (bucket != null) {
+            target.addAll(bucket);
+        }
+    }
+    
+    /**
+     * @return Size of the bucket after adding, or 0 for a null key
+     */
+    private static <K> int addToBucket(Map<K, Set<Patient>> index, K key, Patient patient) {
+        if (key == null) return 0;
+        Set<Patient> bucket = index.computeIfAbsent(key, k -> new HashSet<>());
+        bucket.add(patient);
+        return bucket.size();
+    }
+    
+    /**
+     * Add a patient to the date-of-birth and birthday indexes.
+     */
+    private void indexDateOfBirth(Patient patient) {
+        LocalDate dob = patient.getDateOfBirth();
+        if (dob == null) return;
+        dateOfBirthIndex.computeIfAbsent(dob, k -> new HashSet<>()).add(patient);
+        birthdayIndex.computeIfAbsent(MonthDay.from(dob), k -> new HashSet<>()).add(patient);
+    }
+    
+    /**
+     * Remove a patient from the date-of-birth and birthday indexes.
+     */
+    private void unindexDateOfBirth(Patient patient) {
+        LocalDate dob = patient.getDateOfBirth();
+        if (dob == null) return;
+        removeFromBucket(dateOfBirthIndex, dob, patient);
+        removeFromBucket(birthdayIndex, MonthDay.from(dob), patient);
+    }
+    
+    /**
+     * @return Size of the bucket left after removing, or 0 if there is none
+     */
+    private static <K> int removeFromBucket(Map<K, Set<Patient>> index, K key, Patient patient) {
+        if (key == null) return 0;
+        Set<Patient> bucket = index.get(key);
+        if (bucket == null) return 0;
+        bucket.remove(patient);
+        if (bucket.isEmpty()) {
+            index.remove(key);
+        }
+        return bucket.size();
+    }
 }
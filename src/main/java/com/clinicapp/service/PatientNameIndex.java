@@ -0,0 +1,248 @@
+package com.clinicapp.service;
+
+import com.clinicapp.model.Patient;
+import com.clinicapp.util.NameMatcher;
+import java.util.*;
+
+/**
+ * PatientNameIndex supports fuzzy patient lookup by name.
+ * Each distinct name token is stored once in a BK-tree (for bounded edit
+ * distance queries) and in a Soundex bucket (for phonetic matches), with a
+ * posting set of the patient IDs that carry it. Queries only touch the
+ * tokens the tree cannot prune, never the full patient table.
+ */
+class PatientNameIndex {
+    // Edit distance used to rank phonetic-only matches
+    private static final int PHONETIC_DISTANCE_CAP = 4;
+
+    // Token -> IDs of patients whose name contains the token
+    private final Map<String, Set<Integer>> postings;
+
+    // Soundex key -> tokens sharing that key
+    private final Map<String, Set<String>> phoneticBuckets;
+
+    // Root of the BK-tree over all distinct tokens
+    private BkNode root;
+
+    /**
+     * Node in the BK-tree; children are keyed by their edit distance to this token.
+     */
+    private static class BkNode {
+        final String token;
+        final Map<Integer, BkNode> children;
+
+        BkNode(String token) {
+            this.token = token;
+            this.children = new HashMap<>();
+        }
+    }
+
+    /**
+     * Match state for one patient while ranking a query.
+     */
+    private static class Match {
+        final int patientId;
+        int matchedTokens;
+        int totalDistance;
+
+        Match(int patientId) {
+            this.patientId = patientId;
+        }
+    }
+
+    PatientNameIndex() {
+        this.postings = new HashMap<>();
+        this.phoneticBuckets = new HashMap<>();
+    }
+
+    /**
+     * Index the tokens of a patient's name.
+     */
+    void add(Patient patient) {
+        for (String token : NameMatcher.tokenize(patient.getName())) {
+            Set<Integer> ids = postings.get(token);
+            if (ids == null) {
+                ids = new HashSet<>();
+                postings.put(token, ids);
+                insertIntoTree(token);
+                phoneticBuckets.computeIfAbsent(NameMatcher.soundex(token), k -> new HashSet<>())
+                               .add(token);
+            }
+            ids.add(patient.getId());
+        }
+    }
+
+    /**
+     * Remove a patient's name tokens from the index.
+     * Tokens stay in the tree with an empty posting set so they can be reused.
+     */
+    void remove(int patientId, String name) {
+        for (String token : NameMatcher.tokenize(name)) {
+            Set<Integer> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(patientId);
+            }
+        }
+    }
+
+    /**
+     * Find patients whose name tokens are within maxDistance edits of, or sound
+     * like, the query tokens. Patients matching every query token are returned
+     * when there are any; otherwise patients matching some tokens are ranked.
+     *
+     * @param name Query name, possibly misspelled
+     * @param maxDistance Maximum edits per token, or -1 to scale with token length
+     * @return Matching patient IDs, best match first
+     */
+    List<Integer> search(String name, int maxDistance) {
+        List<Map<String, Integer>> candidatesPerToken = new ArrayList<>();
+        for (String queryToken : NameMatcher.tokenize(name)) {
+            int bound = maxDistance >= 0 ? maxDistance : defaultDistance(queryToken);
+            candidatesPerToken.add(findCandidates(queryToken, bound));
+        }
+        if (candidatesPerToken.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Intersect starting from the rarest query token so work is bounded
+        // by its posting size rather than by the most common name
+        candidatesPerToken.sort(Comparator.comparingInt(this::postingSize));
+        Map<Integer, Match> matches = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : bestDistances(candidatesPerToken.get(0)).entrySet()) {
+            Match match = new Match(entry.getKey());
+            match.matchedTokens = 1;
+            match.totalDistance = entry.getValue();
+            matches.put(entry.getKey(), match);
+        }
+        for (int i = 1; i < candidatesPerToken.size() && !matches.isEmpty(); i++) {
+            Map<String, Integer> candidates = candidatesPerToken.get(i);
+            Iterator<Match> it = matches.values().iterator();
+            while (it.hasNext()) {
+                Match match = it.next();
+                int best = Integer.MAX_VALUE;
+                for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                    if (candidate.getValue() < best
+                            && postings.get(candidate.getKey()).contains(match.patientId)) {
+                        best = candidate.getValue();
+                    }
+                }
+                if (best == Integer.MAX_VALUE) {
+                    it.remove();
+                } else {
+                    match.matchedTokens++;
+                    match.totalDistance += best;
+                }
+            }
+        }
+
+        if (matches.isEmpty()) {
+            // No patient matches every token - rank partial matches instead
+            for (Map<String, Integer> candidates : candidatesPerToken) {
+                for (Map.Entry<Integer, Integer> entry : bestDistances(candidates).entrySet()) {
+                    Match match = matches.computeIfAbsent(entry.getKey(), Match::new);
+                    match.matchedTokens++;
+                    match.totalDistance += entry.getValue();
+                }
+            }
+        }
+
+        List<Match> ranked = new ArrayList<>(matches.values());
+        ranked.sort(Comparator.comparingInt((Match m) -> -m.matchedTokens)
+                              .thenComparingInt(m -> m.totalDistance)
+                              .thenComparingInt(m -> m.patientId));
+
+        List<Integer> ids = new ArrayList<>(ranked.size());
+        for (Match match : ranked) {
+            ids.add(match.patientId);
+        }
+        return ids;
+    }
+
+    /**
+     * Collect indexed tokens within the edit bound or sharing the Soundex key,
+     * mapped to their edit distance from the query token.
+     */
+    private Map<String, Integer> findCandidates(String queryToken, int bound) {
+        Map<String, Integer> candidates = new HashMap<>();
+        collectWithinDistance(queryToken, bound, candidates);
+        Set<String> soundsLike = phoneticBuckets.get(NameMatcher.soundex(queryToken));
+        if (soundsLike != null) {
+            for (String token : soundsLike) {
+                if (!candidates.containsKey(token) && !postings.get(token).isEmpty()) {
+                    candidates.put(token, NameMatcher.editDistance(queryToken, token,
+                                                                   PHONETIC_DISTANCE_CAP));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Best candidate distance for each patient carrying any candidate token.
+     */
+    private Map<Integer, Integer> bestDistances(Map<String, Integer> candidates) {
+        Map<Integer, Integer> best = new HashMap<>();
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            for (int id : postings.get(candidate.getKey())) {
+                best.merge(id, candidate.getValue(), Math::min);
+            }
+        }
+        return best;
+    }
+
+    private int postingSize(Map<String, Integer> candidates) {
+        int size = 0;
+        for (String token : candidates.keySet()) {
+            size += postings.get(token).size();
+        }
+        return size;
+    }
+
+    /**
+     * Default edit bound: exact for short tokens, up to two edits for long ones.
+     */
+    private static int defaultDistance(String token) {
+        return Math.min(2, token.length() / 3);
+    }
+
+    private void insertIntoTree(String token) {
+        if (root == null) {
+            root = new BkNode(token);
+            return;
+        }
+        BkNode node = root;
+        while (true) {
+            int distance = NameMatcher.editDistance(token, node.token);
+            BkNode child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new BkNode(token));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Walk the BK-tree, only descending into children whose edge distance
+     * lies within [d - bound, d + bound] (triangle inequality).
+     */
+    private void collectWithinDistance(String query, int bound, Map<String, Integer> out) {
+        if (root == null) return;
+
+        Deque<BkNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            BkNode node = stack.pop();
+            int distance = NameMatcher.editDistance(query, node.token);
+            if (distance <= bound && !postings.get(node.token).isEmpty()) {
+                out.put(node.token, distance);
+            }
+            for (Map.Entry<Integer, BkNode> child : node.children.entrySet()) {
+                int edge = child.getKey();
+                if (edge >= distance - bound && edge <= distance + bound) {
+                    stack.push(child.getValue());
+                }
+            }
+        }
+    }
+}
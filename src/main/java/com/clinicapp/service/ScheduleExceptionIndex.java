@@ -0,0 +1,142 @@
+package com.clinicapp.service;
+
+import com.clinicapp.model.ScheduleException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * ScheduleExceptionIndex stores one doctor's schedule exceptions sorted by
+ * start time, together with the merged, non-overlapping periods they cover.
+ * Overlap queries look up the merged period starting just before the end of
+ * the requested interval, so they cost O(log n) however much leave is
+ * planned. Listing the exceptions in an interval starts from the merged
+ * period containing its start, so it costs O(log n) plus the exceptions
+ * visited. The merged view is rebuilt only when exceptions change.
+ */
+class ScheduleExceptionIndex {
+    // Exceptions keyed by start, then ID
+    private final NavigableMap<Key, ScheduleException> exceptions;
+
+    // Merged coverage: period start -> period end (exclusive), non-overlapping
+    private final NavigableMap<LocalDateTime, LocalDateTime> covered;
+
+    /**
+     * Sort key of an exception; a key with ID Integer.MIN_VALUE comes before
+     * every exception starting at the same time, for range bounds.
+     */
+    private static final class Key implements Comparable<Key> {
+        final LocalDateTime start;
+        final int id;
+
+        Key(LocalDateTime start, int id) {
+            this.start = start;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byStart = start.compareTo(other.start);
+            return byStart != 0 ? byStart : Integer.compare(id, other.id);
+        }
+    }
+
+    ScheduleExceptionIndex() {
+        this.exceptions = new TreeMap<>();
+        this.covered = new TreeMap<>();
+    }
+
+    void add(ScheduleException exception) {
+        exceptions.put(new Key(exception.getStart(), exception.getId()), exception);
+        // Merge the new period with any covered periods it touches
+        LocalDateTime start = exception.getStart();
+        LocalDateTime end = exception.getEnd();
+        Map.Entry<LocalDateTime, LocalDateTime> before = covered.floorEntry(start);
+        if (before != null && !before.getValue().isBefore(start)) {
+            start = before.getKey();
+            if (before.getValue().isAfter(end)) {
+                end = before.getValue();
+            }
+        }
+        Iterator<Map.Entry<LocalDateTime, LocalDateTime>> it =
+            covered.subMap(start, true, end, true).entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<LocalDateTime, LocalDateTime> entry = it.next();
+            if (entry.getValue().isAfter(end)) {
+                end = entry.getValue();
+            }
+            it.remove();
+        }
+        covered.put(start, end);
+    }
+
+    boolean remove(int exceptionId) {
+        Iterator<ScheduleException> it = exceptions.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().getId() == exceptionId) {
+                it.remove();
+                rebuildCoverage();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether any exception overlaps the interval [start, end).
+     */
+    boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        Map.Entry<LocalDateTime, LocalDateTime> entry = covered.lowerEntry(end);
+        return entry != null && entry.getValue().isAfter(start);
+    }
+
+    /**
+     * Get the exceptions overlapping [from, to), in start order.
+     */
+    List<ScheduleException> between(LocalDateTime from, LocalDateTime to) {
+        // An exception overlapping from lies in the merged period covering from,
+        // so none starting before that period (or before from, if none covers it) can match
+        Map.Entry<LocalDateTime, LocalDateTime> period = covered.floorEntry(from);
+        LocalDateTime first = period != null && period.getValue().isAfter(from) ? period.getKey() : from;
+        List<ScheduleException> result = new ArrayList<>();
+        if (!first.isBefore(to)) {
+            return result;
+        }
+        for (ScheduleException exception : exceptions.subMap(new Key(first, Integer.MIN_VALUE), true,
+                                                             new Key(to, Integer.MIN_VALUE), false).values()) {
+            if (exception.getEnd().isAfter(from)) {
+                result.add(exception);
+            }
+        }
+        return result;
+    }
+
+    List<ScheduleException> getAll() {
+        return new ArrayList<>(exceptions.values());
+    }
+
+    boolean isEmpty() {
+        return exceptions.isEmpty();
+    }
+
+    private void rebuildCoverage() {
+        covered.clear();
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        for (ScheduleException exception : exceptions.values()) {
+            if (start != null && !exception.getStart().isAfter(end)) {
+                if (exception.getEnd().isAfter(end)) {
+                    end = exception.getEnd();
+                }
+            } else {
+                if (start != null) {
+                    covered.put(start, end);
+                }
+                start = exception.getStart();
+                end = exception.getEnd();
+            }
+        }
+        if (start != null) {
+            covered.put(start, end);
+        }
+    }
+}
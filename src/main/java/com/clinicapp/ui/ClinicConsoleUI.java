@@ -1,6 +1,7 @@
 package com.clinicapp.ui;
 
 import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.AppointmentManager.CascadeAction;
 import com.clinicapp.service.DoctorManager;
 import com.clinicapp.service.PatientManager;
 import com.clinicapp.model.Appointment;
@@ -247,9 +248,28 @@ public class ClinicConsoleUI {
             String bloodType = InputValidator.readBloodType(scanner, true);
             String allergies = InputValidator.readOptionalString(scanner, "Enter known allergies (optional): ");
             
+            // Refuse a certain duplicate; warn about patients sharing a phone, email or name+DOB
+            Patient existing = patientManager.findDuplicate(name, dob, phone, email);
+            if (existing != null) {
+                DisplayHelper.displayError("This patient is already registered:");
+                System.out.println(existing);
+                DisplayHelper.pressEnterToContinue();
+                return;
+            }
+            List<Patient> similar = patientManager.findPossibleDuplicates(name, dob, phone, email);
+            if (!similar.isEmpty()) {
+                DisplayHelper.displayWarning("Patients with the same name and date of birth, phone or email exist:");
+                DisplayHelper.displayPatientTable(similar);
+                if (!InputValidator.readConfirmation(scanner, "\nRegister this patient anyway?")) {
+                    DisplayHelper.displayInfo("Registration cancelled.");
+                    DisplayHelper.pressEnterToContinue();
+                    return;
+                }
+            }
+            
             // Create the patient
-            Patient patient = patientManager.addPatient(name, dob, gender, phone, 
-                                                       email, address, bloodType, allergies);
+            Patient patient = patientManager.registerPatient(name, dob, gender, phone, 
+                                                            email, address, bloodType, allergies);
             
             // Display success message with patient details
             DisplayHelper.displaySuccess("Patient registered successfully!");
@@ -386,9 +406,13 @@ public class ClinicConsoleUI {
         System.out.println(patient.getDetailedInfo());
         
         // Check for existing appointments
-        List<Appointment> appointments = appointmentManager.getAppointmentsByPatient(patientId);
-        if (!appointments.isEmpty()) {
-            DisplayHelper.displayWarning("This patient has " + appointments.size() + " appointment(s).");
+        int appointmentCount = appointmentManager.getAppointmentCountByPatient(patientId);
+        CascadeAction action = CascadeAction.CANCEL;
+        if (appointmentCount > 0) {
+            DisplayHelper.displayWarning("This patient has " + appointmentCount + " appointment(s).");
+            if (InputValidator.readConfirmation(scanner, "Archive the appointments instead of cancelling them?")) {
+                action = CascadeAction.ARCHIVE;
+            }
         }
         
         // Confirm deletion
@@ -396,9 +420,9 @@ public class ClinicConsoleUI {
             "\nAre you sure you want to delete this patient?");
         
         if (confirm) {
-            boolean success = patientManager.deletePatient(patientId);
-            if (success) {
-                DisplayHelper.displaySuccess("Patient deleted successfully.");
+            int affected = appointmentManager.deletePatient(patientId, action);
+            if (affected >= 0) {
+                DisplayHelper.displaySuccess("Patient deleted successfully. Appointments affected: " + affected);
             } else {
                 DisplayHelper.displayError("Failed to delete patient.");
             }
@@ -623,18 +647,30 @@ public class ClinicConsoleUI {
         System.out.println(doctor.getDetailedInfo());
         
         // Check for existing appointments
-        List<Appointment> appointments = appointmentManager.getAppointmentsByDoctor(doctorId);
-        if (!appointments.isEmpty()) {
-            DisplayHelper.displayWarning("This doctor has " + appointments.size() + " appointment(s).");
+        int appointmentCount = appointmentManager.getAppointmentCountByDoctor(doctorId);
+        CascadeAction action = CascadeAction.CANCEL;
+        Doctor replacement = null;
+        if (appointmentCount > 0) {
+            DisplayHelper.displayWarning("This doctor has " + appointmentCount + " appointment(s).");
+            if (InputValidator.readConfirmation(scanner, "Reassign open appointments to another doctor?")) {
+                int replacementId = InputValidator.readInt(scanner, "Enter replacement doctor ID: ", 1, Integer.MAX_VALUE);
+                replacement = doctorManager.getDoctorById(replacementId);
+                if (replacement == null || replacementId == doctorId) {
+                    DisplayHelper.displayError("Invalid replacement doctor.");
+                    DisplayHelper.pressEnterToContinue();
+                    return;
+                }
+                action = CascadeAction.REASSIGN;
+            }
         }
         
         boolean confirm = InputValidator.readConfirmation(scanner, 
             "\nAre you sure you want to delete this doctor?");
         
         if (confirm) {
-            boolean success = doctorManager.deleteDoctor(doctorId);
-            if (success) {
-                DisplayHelper.displaySuccess("Doctor deleted successfully.");
+            int affected = appointmentManager.deleteDoctor(doctorId, action, replacement);
+            if (affected >= 0) {
+                DisplayHelper.displaySuccess("Doctor deleted successfully. Appointments affected: " + affected);
             } else {
                 DisplayHelper.displayError("Failed to delete doctor.");
             }
@@ -700,7 +736,7 @@ public class ClinicConsoleUI {
             Appointment appointment = appointmentManager.scheduleAppointment(patient, doctor, dateTime, reason);
             
             if (appointment == null) {
-                DisplayHelper.displayError("Failed to schedule appointment. There might be a time conflict.");
+                DisplayHelper.displayError("Failed to schedule appointment. The time may be outside the doctor's working hours or conflict with another booking.");
             } else {
                 DisplayHelper.displaySuccess("Appointment scheduled successfully!");
                 System.out.println(appointment.getDetailedInfo());
@@ -848,7 +884,7 @@ public class ClinicConsoleUI {
             // Inform about undo availability
             DisplayHelper.displayInfo("You can undo this action from the main menu if needed.");
         } else {
-            DisplayHelper.displayError("Failed to update appointment. Check for scheduling conflicts.");
+            DisplayHelper.displayError("Failed to update appointment. Check working hours and scheduling conflicts.");
         }
         
         DisplayHelper.pressEnterToContinue();
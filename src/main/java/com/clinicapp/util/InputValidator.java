@@ -1,8 +1,9 @@
 package com.clinicapp.util;
 
+import com.clinicapp.model.DateTimeCodec;
+import com.clinicapp.model.ValueDictionary;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.regex.Pattern;
 
@@ -18,12 +19,6 @@ public class InputValidator {
     private static final Pattern PHONE_PATTERN = 
         Pattern.compile("^[0-9]{10,15}$|^\\+?[0-9]{10,15}$");
     
-    private static final DateTimeFormatter DATE_FORMATTER = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    
-    private static final DateTimeFormatter TIME_FORMATTER = 
-        DateTimeFormatter.ofPattern("HH:mm");
-    
     /**
      * Validate email address format.
      */
@@ -46,7 +41,7 @@ public class InputValidator {
             return false;
         }
         try {
-            DATE_FORMATTER.parse(dateStr);
+            DateTimeCodec.parseDate(dateStr);
             return true;
         } catch (DateTimeParseException e) {
             return false;
@@ -57,8 +52,11 @@ public class InputValidator {
      * Parse and validate date string.
      */
     public static LocalDate parseAndValidateDate(String dateStr) {
+        if (dateStr == null) {
+            return null;
+        }
         try {
-            return LocalDate.parse(dateStr, DATE_FORMATTER);
+            return DateTimeCodec.parseDate(dateStr);
         } catch (DateTimeParseException e) {
             return null;
         }
@@ -72,7 +70,7 @@ public class InputValidator {
             return false;
         }
         try {
-            TIME_FORMATTER.parse(timeStr);
+            DateTimeCodec.parseTime(timeStr);
             return true;
         } catch (DateTimeParseException e) {
             return false;
@@ -83,8 +81,11 @@ public class InputValidator {
      * Parse and validate time string.
      */
     public static LocalTime parseAndValidateTime(String timeStr) {
+        if (timeStr == null) {
+            return null;
+        }
         try {
-            return LocalTime.parse(timeStr, TIME_FORMATTER);
+            return DateTimeCodec.parseTime(timeStr);
         } catch (DateTimeParseException e) {
             return null;
         }
@@ -130,21 +131,47 @@ public class InputValidator {
     
     /**
      * Normalize gender string.
+     * Returns the shared ValueDictionary instance, or null if not recognised.
      */
     public static String normalizeGender(String gender) {
         if (gender == null) return null;
-        String normalized = gender.trim().toLowerCase();
-        if (normalized.equals("male")) return "Male";
-        if (normalized.equals("female")) return "Female";
-        if (normalized.equals("other")) return "Other";
+        String normalized = gender.trim();
+        if (normalized.equalsIgnoreCase("male")) return ValueDictionary.GENDERS.canonical("Male");
+        if (normalized.equalsIgnoreCase("female")) return ValueDictionary.GENDERS.canonical("Female");
+        if (normalized.equalsIgnoreCase("other")) return ValueDictionary.GENDERS.canonical("Other");
         return null;
     }
     
     /**
      * Normalize blood type string.
+     * Returns the shared ValueDictionary instance.
      */
     public static String normalizeBloodType(String bloodType) {
         if (bloodType == null) return null;
-        return bloodType.trim().toUpperCase();
+        return ValueDictionary.BLOOD_TYPES.canonical(bloodType.trim().toUpperCase());
+    }
+    
+    /**
+     * Normalize phone number for comparison by keeping only its digits.
+     */
+    public static String normalizePhoneNumber(String phoneNumber) {
+        if (phoneNumber == null) return null;
+        StringBuilder digits = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() > 0 ? digits.toString() : null;
+    }
+    
+    /**
+     * Normalize email address for comparison (trimmed, lower case).
+     */
+    public static String normalizeEmail(String email) {
+        if (email == null) return null;
+        String normalized = email.trim().toLowerCase();
+        return normalized.isEmpty() ? null : normalized;
     }
 }
@@ -0,0 +1,126 @@
+package com.clinicapp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NameMatcher provides utility methods for approximate name matching:
+ * tokenizing, phonetic (Soundex) keys and bounded edit distance.
+ * Pure functions with no I/O operations.
+ */
+public class NameMatcher {
+
+    // Soundex digit for each letter A-Z ('0' means the letter is not coded)
+    private static final String SOUNDEX_CODES = "01230120022455012623010202";
+
+    /**
+     * Split a name into lowercase alphabetic tokens.
+     * "Jon  O'Smyth-Jr" becomes [jon, osmyth, jr].
+     */
+    public static List<String> tokenize(String name) {
+        List<String> tokens = new ArrayList<>();
+        if (name == null) return tokens;
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (c == '\'') {
+                // Apostrophes join the token ("O'Brien" -> "obrien")
+                continue;
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Compute the American Soundex key of a token (e.g. "smyth" -> "S530").
+     *
+     * @return Four-character key, or empty string if the token has no letters
+     */
+    public static String soundex(String token) {
+        if (token == null) return "";
+
+        char[] key = new char[4];
+        int length = 0;
+        char lastCode = 0;
+
+        for (int i = 0; i < token.length() && length < 4; i++) {
+            char c = Character.toUpperCase(token.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                continue;
+            }
+            char code = SOUNDEX_CODES.charAt(c - 'A');
+            if (length == 0) {
+                key[length++] = c;
+                lastCode = code;
+            } else if (code != '0' && code != lastCode) {
+                key[length++] = code;
+                lastCode = code;
+            } else if (c != 'H' && c != 'W') {
+                // Vowels separate repeated codes; H and W do not
+                lastCode = code;
+            }
+        }
+
+        if (length == 0) return "";
+        while (length < 4) {
+            key[length++] = '0';
+        }
+        return new String(key);
+    }
+
+    /**
+     * Levenshtein distance between two strings, giving up early once
+     * the distance is known to exceed maxDistance.
+     *
+     * @return The edit distance, or maxDistance + 1 if it exceeds the bound
+     */
+    public static int editDistance(String a, String b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+                                      previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return Math.min(previous[m], maxDistance + 1);
+    }
+
+    /**
+     * Unbounded Levenshtein distance between two strings.
+     */
+    public static int editDistance(String a, String b) {
+        return editDistance(a, b, Math.max(a.length(), b.length()));
+    }
+}
@@ -0,0 +1,518 @@
+#!/bin/bash
+# Simple test script to verify the CSV and columnar readers and writers.
+# The test program lives in com.clinicapp.io to reach package-private classes.
+
+cd "$(dirname "$0")"
+TEST_DIR=$(mktemp -d)
+
+# Create a simple test program
+cat > "$TEST_DIR/TestIo.java" << 'EOF'
+package com.clinicapp.io;
+
+import com.clinicapp.model.Appointment;
+import com.clinicapp.model.Doctor;
+import com.clinicapp.model.Patient;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.DoctorManager;
+import com.clinicapp.service.PatientManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TestIo {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        try {
+            testTokenizer();
+            testAtomicImports();
+            testColumnarRoundTrip();
+            testMappedImport();
+        } catch (Exception e) {
+            System.err.println("✗ Test failed: " + e.getMessage());
+            e.printStackTrace();
+            failures++;
+        }
+
+        if (failures == 0) {
+            System.out.println("✓ All IO tests passed");
+        } else {
+            System.out.println("✗ " + failures + " check(s) failed");
+            System.exit(1);
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (condition) {
+            System.out.println("✓ " + description);
+        } else {
+            System.out.println("✗ " + description);
+            failures++;
+        }
+    }
+
+    // ---- CsvTokenizer ----
+
+    /**
+     * Reader that hands out a few characters per call, so records and
+     * quotes are split across reads at every possible point.
+     */
+    private static class TrickleReader extends Reader {
+        private final String text;
+        private final Random random = new Random(42);
+        private int pos;
+
+        TrickleReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (pos == text.length()) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, 1 + random.nextInt(7)), text.length() - pos);
+            text.getChars(pos, pos + count, buffer, offset);
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static List<String[]> parse(Reader reader) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        CsvRecord record = new CsvRecord(64, 4);
+        try (CsvTokenizer tokenizer = new CsvTokenizer(reader)) {
+            while (tokenizer.readNext(record)) {
+                rows.add(record.toArray());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Parse text both in one read and a few characters at a time; the two
+     * must agree.
+     */
+    private static List<String[]> parse(String text) throws IOException {
+        List<String[]> whole = parse(new StringReader(text));
+        List<String[]> trickled = parse(new TrickleReader(text));
+        if (!same(whole, trickled)) {
+            throw new IOException("Parsing differs when input arrives in pieces");
+        }
+        return whole;
+    }
+
+    /**
+     * Quote every field as CSVWriter does by default.
+     */
+    private static String write(List<String[]> rows, String lineEnd) {
+        StringBuilder text = new StringBuilder();
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                text.append('"').append(row[i].replace("\"", "\"\"")).append('"');
+            }
+            text.append(lineEnd);
+        }
+        return text.toString();
+    }
+
+    private static boolean same(List<String[]> a, List<String[]> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!Arrays.equals(a.get(i), b.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String[]> rows(String[]... rows) {
+        return Arrays.asList(rows);
+    }
+
+    private static boolean roundTrips(List<String[]> rows) throws IOException {
+        return same(rows, parse(write(rows, "\n"))) && same(rows, parse(write(rows, "\r\n")));
+    }
+
+    private static void testTokenizer() throws IOException {
+        check(roundTrips(rows(new String[] {"Doe, John", "a,b,c"}, new String[] {",", ""})),
+              "Quoted commas round-trip");
+        check(roundTrips(rows(new String[] {"say \"hi\"", "\"", "\"\""})),
+              "Doubled quotes round-trip");
+        check(roundTrips(rows(new String[] {"line 1\nline 2", "cr\ronly", "crlf\r\nend"}, new String[] {"next"})),
+              "Embedded CR and LF round-trip");
+        check(roundTrips(rows(new String[] {"a", ""}, new String[] {"", "", ""})),
+              "Empty trailing fields round-trip");
+
+        check(same(parse("a,b\rc,d\r\ne,f\n"),
+                   rows(new String[] {"a", "b"}, new String[] {"c", "d"}, new String[] {"e", "f"})),
+              "Bare CR ends a record");
+        check(same(parse("1,O\"Brien,x\n2,y\n"),
+                   rows(new String[] {"1", "O\"Brien", "x"}, new String[] {"2", "y"})),
+              "Stray mid-field quote is kept as a character");
+        check(same(parse("a,b,\n,\n"), rows(new String[] {"a", "b", ""}, new String[] {"", ""})),
+              "Unquoted empty trailing field is kept");
+        check(same(parse("a,b"), rows(new String[] {"a", "b"})),
+              "Last record needs no line end");
+
+        boolean unterminated = false;
+        try {
+            parse("a,\"bc\nd,e\n");
+        } catch (IOException e) {
+            unterminated = e.getMessage().startsWith("Unterminated");
+        }
+        check(unterminated, "Unterminated quote at end of file is an error");
+
+        // Put every character of a tricky record on the 64K buffer boundary in turn
+        String tricky = "\"x,\"\"y\"\"\",\"a\r\nb\",z\r\n";
+        String[] trickyFields = {"x,\"y\"", "a\r\nb", "z"};
+        boolean straddles = true;
+        for (int shift = 0; shift <= tricky.length() + 1; shift++) {
+            char[] filler = new char[(1 << 16) - 3 - shift];
+            Arrays.fill(filler, 'f');
+            String text = new String(filler) + ",1\n" + tricky + "last\n";
+            List<String[]> parsed = parse(new StringReader(text));
+            straddles &= parsed.size() == 3 && parsed.get(0)[0].length() == filler.length
+                         && Arrays.equals(parsed.get(1), trickyFields) && parsed.get(2)[0].equals("last");
+        }
+        check(straddles, "Records straddling the 64K buffer boundary parse the same");
+
+        char[] longField = new char[200_000];
+        Arrays.fill(longField, ',');
+        check(roundTrips(rows(new String[] {new String(longField), "after"})),
+              "Quoted field longer than the buffer round-trips");
+
+        Random random = new Random(7);
+        char[] alphabet = {'a', 'b', ',', '"', '\r', '\n', ' '};
+        List<String[]> randomRows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String[] row = new String[1 + random.nextInt(6)];
+            for (int j = 0; j < row.length; j++) {
+                char[] field = new char[random.nextInt(12)];
+                for (int k = 0; k < field.length; k++) {
+                    field[k] = alphabet[random.nextInt(alphabet.length)];
+                }
+                row[j] = new String(field);
+            }
+            randomRows.add(row);
+        }
+        check(roundTrips(randomRows), "Random quoted rows round-trip");
+    }
+
+    // ---- All-or-nothing imports ----
+
+    private static String csvFile(String... lines) throws IOException {
+        File file = File.createTempFile("import", ".csv");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            for (String line : lines) {
+                out.println(line);
+            }
+        }
+        return file.getPath();
+    }
+
+    private static List<Integer> patientIds(PatientManager pm) {
+        List<Integer> ids = new ArrayList<>();
+        for (Patient patient : pm.getAllPatients()) {
+            ids.add(patient.getId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> appointmentIds(AppointmentManager am) {
+        List<Integer> ids = new ArrayList<>();
+        for (Appointment appointment : am.getAllAppointments()) {
+            ids.add(appointment.getId());
+        }
+        return ids;
+    }
+
+    private static void testAtomicImports() throws IOException {
+        PatientManager pm = new PatientManager();
+        DoctorManager dm = new DoctorManager();
+        AppointmentManager am = new AppointmentManager(pm, dm);
+        Patient existing = pm.addPatient("Existing Patient", LocalDate.of(1970, 1, 1), "Female",
+                                         "1010101010", "existing@test.com", "1 Old Rd", null, null);
+        Doctor doctor = dm.addDoctor("Atomic Doctor", "General Practice", "2020202020", null,
+                                     Arrays.asList("Monday", "Tuesday", "Wednesday", "Thursday", "Friday"),
+                                     "09:00", "17:00");
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        am.scheduleAppointment(existing, doctor, monday, LocalTime.of(9, 0), LocalTime.of(9, 30), "Existing");
+
+        String header = "ID,Name,Date of Birth,Age,Gender,Phone Number,Email,Address,Blood Type,Allergies";
+        String badPatients = csvFile(header,
+            "1,First New,1980-02-02,0,Male,3030303030,first@test.com,2 New Rd,A+,",
+            "2,Second New,1981-03-03,0,Female,4040404040,,3 New Rd,,",
+            "3,Bad Date,1982-13-45,0,Male,5050505050,,4 New Rd,,");
+        List<Integer> ids = patientIds(pm);
+        long sequence = pm.getChangeSequence();
+        CsvImporter.ImportResult result = CsvImporter.importPatientsAtomically(badPatients, pm,
+                                                                              CsvImporter.DuplicatePolicy.SKIP);
+        check(result.rolledBack && result.successCount == 0, "Patient import with a bad last row is rolled back");
+        check(pm.getPatientCount() == 1 && patientIds(pm).equals(ids), "Rolled-back patient import adds no patients");
+        check(pm.getChangeSequence() == sequence, "Rolled-back patient import records no changes");
+
+        String mergePatients = csvFile(header,
+            "1,Existing Patient,1970-01-01,0,Female,1010101010,existing@test.com,9 Moved Rd,B+,Latex");
+        result = CsvImporter.importPatientsAtomically(mergePatients, pm, CsvImporter.DuplicatePolicy.MERGE);
+        check(result.rolledBack && !result.errors.isEmpty(), "MERGE is refused by all-or-nothing imports");
+        check(existing.getAddress().equals("1 Old Rd") && existing.getBloodType() == null
+              && pm.getChangeSequence() == sequence, "Refused MERGE leaves the existing patient unchanged");
+
+        String goodPatients = csvFile(header,
+            "1,First New,1980-02-02,0,Male,3030303030,first@test.com,2 New Rd,A+,",
+            "2,Second New,1981-03-03,0,Female,4040404040,,3 New Rd,,");
+        result = CsvImporter.importPatientsAtomically(goodPatients, pm, CsvImporter.DuplicatePolicy.SKIP);
+        check(!result.rolledBack && result.successCount == 2 && pm.getPatientCount() == 3,
+              "Patient import without errors publishes every row");
+
+        String appointmentHeader = "ID,Date,Start Time,End Time,Patient ID,Patient Name,Doctor ID,Doctor Name,Reason,Status,Notes";
+        String badAppointments = csvFile(appointmentHeader,
+            "1," + monday + ",10:00,10:30," + existing.getId() + ",x," + doctor.getId() + ",x,First,SCHEDULED,",
+            "2," + monday + ",11:00,11:30," + existing.getId() + ",x," + doctor.getId() + ",x,Second,SCHEDULED,",
+            "3," + monday + ",12:00,12:30,999999,x," + doctor.getId() + ",x,Unknown patient,SCHEDULED,");
+        List<Integer> appointments = appointmentIds(am);
+        long appointmentSequence = am.getChangeSequence();
+        result = CsvImporter.importAppointmentsAtomically(badAppointments, am, pm, dm);
+        check(result.rolledBack && result.successCount == 0, "Appointment import with a bad last row is rolled back");
+        check(am.getAppointmentCount() == 1 && appointmentIds(am).equals(appointments),
+              "Rolled-back appointment import adds no appointments");
+        check(am.getChangeSequence() == appointmentSequence, "Rolled-back appointment import records no changes");
+        check(am.getDoctorLoad(doctor.getId(), monday, AppointmentManager.RoutingPeriod.DAY) == 1,
+              "Rolled-back appointment import leaves doctor load unchanged");
+    }
+
+    // ---- Columnar export ----
+
+    /**
+     * Row of the test table; any field may be null.
+     */
+    private static class Sample {
+        final Integer number;
+        final LocalDate date;
+        final LocalTime time;
+        final LocalDateTime timestamp;
+        final Boolean flag;
+        final String text;
+
+        Sample(Integer number, LocalDate date, LocalTime time, LocalDateTime timestamp, Boolean flag, String text) {
+            this.number = number;
+            this.date = date;
+            this.time = time;
+            this.timestamp = timestamp;
+            this.flag = flag;
+            this.text = text;
+        }
+    }
+
+    private static final List<String> SAMPLE_COLUMN_NAMES =
+        Arrays.asList("Number", "Date", "Time", "Timestamp", "Flag", "Text");
+
+    private static final List<ColumnarExporter.Column<Sample>> SAMPLE_COLUMNS = Arrays.asList(
+        ColumnarExporter.Column.of("Number", ColumnType.INT,
+                                   s -> s.number != null ? s.number : ColumnarExporter.NULL),
+        ColumnarExporter.Column.of("Date", ColumnType.DATE,
+                                   s -> s.date != null ? s.date.toEpochDay() : ColumnarExporter.NULL),
+        ColumnarExporter.Column.of("Time", ColumnType.TIME,
+                                   s -> s.time != null ? s.time.toSecondOfDay() : ColumnarExporter.NULL),
+        ColumnarExporter.Column.of("Timestamp", ColumnType.TIMESTAMP,
+                                   s -> s.timestamp != null ? s.timestamp.toEpochSecond(ZoneOffset.UTC)
+                                                            : ColumnarExporter.NULL),
+        ColumnarExporter.Column.of("Flag", ColumnType.BOOLEAN,
+                                   s -> s.flag != null ? (s.flag ? 1 : 0) : ColumnarExporter.NULL),
+        ColumnarExporter.Column.text("Text", s -> s.text)
+    );
+
+    private static String writeSamples(List<Sample> samples, int rowGroupSize) throws IOException {
+        File file = File.createTempFile("samples", ColumnarExporter.EXTENSION);
+        file.deleteOnExit();
+        return ColumnarExporter.write("samples", SAMPLE_COLUMNS, samples.iterator(), file.getPath(), rowGroupSize);
+    }
+
+    /**
+     * Read every row back, null values as null.
+     */
+    private static List<Sample> readSamples(String fileName) throws IOException {
+        List<Sample> samples = new ArrayList<>();
+        try (ColumnarReader reader = ColumnarReader.open(fileName)) {
+            reader.scan(SAMPLE_COLUMN_NAMES, row -> samples.add(new Sample(
+                row.isNull(0) ? null : row.getInt(0), row.getDate(1), row.getTime(2), row.getTimestamp(3),
+                row.isNull(4) ? null : row.getBoolean(4), row.getString(5))));
+        }
+        return samples;
+    }
+
+    private static boolean same(Sample a, Sample b) {
+        return java.util.Objects.equals(a.number, b.number) && java.util.Objects.equals(a.date, b.date)
+            && java.util.Objects.equals(a.time, b.time) && java.util.Objects.equals(a.timestamp, b.timestamp)
+            && java.util.Objects.equals(a.flag, b.flag) && java.util.Objects.equals(a.text, b.text);
+    }
+
+    private static boolean roundTrips(List<Sample> samples, int rowGroupSize) throws IOException {
+        List<Sample> read = readSamples(writeSamples(samples, rowGroupSize));
+        if (read.size() != samples.size()) {
+            return false;
+        }
+        for (int i = 0; i < samples.size(); i++) {
+            if (!same(samples.get(i), read.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void testColumnarRoundTrip() throws IOException {
+        LocalDate day = LocalDate.of(2024, 2, 29);
+        List<Sample> samples = Arrays.asList(
+            new Sample(1, day, LocalTime.of(9, 30), LocalDateTime.of(2024, 1, 1, 12, 0, 5), true, "a"),
+            new Sample(null, null, null, null, null, null),
+            new Sample(-7, LocalDate.of(1900, 1, 1), LocalTime.MIDNIGHT, LocalDateTime.of(1969, 12, 31, 23, 59, 59),
+                       false, ""),
+            new Sample(Integer.MAX_VALUE, day, LocalTime.of(23, 59, 59), null, null, "ünïcødé"),
+            new Sample(null, day, null, LocalDateTime.of(2024, 2, 29, 0, 0), true, "a"));
+        check(roundTrips(samples, 2), "Null INT, DATE, TIME, TIMESTAMP, BOOLEAN and STRING values round-trip");
+
+        // Codes run to the dictionary size, so 255 entries fit one byte and 256 need two
+        boolean dictionaries = true;
+        for (int size : new int[] {255, 256, 65535, 65536}) {
+            List<Sample> rows = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                rows.add(new Sample(i, null, null, null, null, "value " + i));
+            }
+            rows.add(new Sample(-1, null, null, null, null, null));
+            rows.add(new Sample(-2, null, null, null, null, "value " + (size - 1)));
+            boolean ok = roundTrips(rows, rows.size());
+            if (!ok) {
+                System.out.println("  dictionary of " + size + " entries does not round-trip");
+            }
+            dictionaries &= ok;
+        }
+        check(dictionaries, "Dictionaries of 255, 256, 65535 and 65536 entries round-trip");
+
+        // Row groups of 10: no dates, then January, February and March
+        List<Sample> dated = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dated.add(new Sample(i, null, null, null, null, "undated"));
+        }
+        for (int month = 1; month <= 3; month++) {
+            for (int i = 0; i < 10; i++) {
+                dated.add(new Sample(month * 100 + i, LocalDate.of(2024, month, 1 + i * 2), null, null, null, null));
+            }
+        }
+        String fileName = writeSamples(dated, 10);
+        check(roundTrips(dated, 10), "All-null date row group round-trips");
+        try (ColumnarReader reader = ColumnarReader.open(fileName)) {
+            int[] visited = new int[1];
+            int groups = reader.scan(Arrays.asList("Number"), "Date", LocalDate.of(2024, 2, 1),
+                                     LocalDate.of(2024, 2, 28), row -> visited[0]++);
+            check(reader.getRowGroupCount() == 4 && groups == 1 && visited[0] == 10,
+                  "Date range scan reads only the matching row group");
+
+            visited[0] = 0;
+            groups = reader.scan(Arrays.asList("Number"), "Date", LocalDate.of(2024, 1, 15),
+                                 LocalDate.of(2024, 2, 4), row -> visited[0]++);
+            check(groups == 2 && visited[0] == 5, "Date range scan filters rows within the groups it reads");
+
+            visited[0] = 0;
+            groups = reader.scan(Arrays.asList("Number"), "Date", null, null, row -> visited[0]++);
+            check(groups == 3 && visited[0] == 30, "Date filter skips the all-null row group");
+
+            visited[0] = 0;
+            groups = reader.scan(Arrays.asList("Number"), row -> visited[0]++);
+            check(groups == 4 && visited[0] == 40, "Unfiltered scan reads every row group");
+        }
+    }
+
+    // ---- Memory-mapped import ----
+
+    /**
+     * Write a patient file of about 2 MB, so 64 KB chunks cut it about 30 times.
+     *
+     * @param strayQuoteRow Row whose address gets an unquoted quote, or -1
+     * @param lineEnd Line break after each record
+     */
+    private static String patientFile(int strayQuoteRow, String lineEnd) throws IOException {
+        File file = File.createTempFile("patients", ".csv");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.print("ID,Name,Date of Birth,Age,Gender,Phone Number,Email,Address,Blood Type,Allergies" + lineEnd);
+            for (int i = 0; i < 20_000; i++) {
+                String address = i == strayQuoteRow ? "12 O\"Brien St" : "\"" + i + " Long Rd,\nApt " + (i % 7) + "\"";
+                String allergies = i % 3 == 0 ? "\"Pollen, \"\"dust\"\"\"" : "";
+                out.print(i + ",Patient " + i + ",1980-01-01,44,Female,555" + i + ",p" + i + "@test.com,"
+                          + address + ",O+," + allergies + lineEnd);
+            }
+        }
+        return file.getPath();
+    }
+
+    private static List<String> patientRows(PatientManager pm) {
+        List<String> rows = new ArrayList<>();
+        for (Patient patient : pm.getAllPatients()) {
+            rows.add(patient.getName() + "|" + patient.getAddress() + "|" + patient.getAllergies());
+        }
+        return rows;
+    }
+
+    /**
+     * Import a file with the mapped importer in 64 KB chunks and with the
+     * sequential importer; both must produce the same patients.
+     */
+    private static boolean mappedMatchesSequential(String fileName) {
+        PatientManager sequential = new PatientManager();
+        CsvImporter.ImportResult expected = CsvImporter.importPatients(fileName, sequential);
+        PatientManager mapped = new PatientManager();
+        CsvImporter.ImportResult actual = MappedCsvImporter.run(fileName, 4, 1 << 16, CsvImporter::parsePatient,
+            CsvImporter.patientApplier(mapped, CsvImporter.DuplicatePolicy.ALLOW), "patient");
+        return expected.successCount == 20_000 && actual.successCount == expected.successCount
+            && actual.errorCount == expected.errorCount && actual.errors.equals(expected.errors)
+            && patientRows(mapped).equals(patientRows(sequential));
+    }
+
+    private static void testMappedImport() throws IOException {
+        check(mappedMatchesSequential(patientFile(-1, "\n")), "Mapped import matches sequential import");
+        check(mappedMatchesSequential(patientFile(3, "\n")),
+              "Mapped import matches sequential import after a stray quote");
+        check(mappedMatchesSequential(patientFile(-1, "\r")),
+              "Mapped import matches sequential import with bare CR line ends");
+        check(mappedMatchesSequential(patientFile(3, "\r\n")),
+              "Mapped import matches sequential import with CRLF and a stray quote");
+    }
+}
+EOF
+
+# Compile the test
+echo "Compiling test..."
+javac -encoding UTF-8 -cp "bin:lib/*" -d "$TEST_DIR" "$TEST_DIR/TestIo.java"
+
+# Run the test
+echo "Running IO tests..."
+java -cp "$TEST_DIR:bin:lib/*" com.clinicapp.io.TestIo
+status=$?
+
+# Cleanup
+rm -rf "$TEST_DIR"
+exit $status
@@ -0,0 +1,180 @@
+#!/bin/bash
+# Simple test script to verify service-layer behaviour
+
+cd "$(dirname "$0")"
+
+# Create a simple test program
+cat > TestServices.java << 'EOF'
+import com.clinicapp.io.CsvImporter;
+import com.clinicapp.model.Appointment;
+import com.clinicapp.model.Appointment.AppointmentStatus;
+import com.clinicapp.model.Doctor;
+import com.clinicapp.model.Patient;
+import com.clinicapp.service.AppointmentManager;
+import com.clinicapp.service.DoctorManager;
+import com.clinicapp.service.PatientManager;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestServices {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        try {
+            testDuplicateRegistration();
+            testDuplicateGroupsFollowEdits();
+            testCascadeDeleteClearsUndo();
+            testImportKeepsHistoricalAppointments();
+        } catch (Exception e) {
+            System.err.println("✗ Test failed: " + e.getMessage());
+            e.printStackTrace();
+            failures++;
+        }
+
+        if (failures == 0) {
+            System.out.println("✓ All service tests passed");
+        } else {
+            System.out.println("✗ " + failures + " check(s) failed");
+            System.exit(1);
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (condition) {
+            System.out.println("✓ " + description);
+        } else {
+            System.out.println("✗ " + description);
+            failures++;
+        }
+    }
+
+    private static void testDuplicateRegistration() {
+        PatientManager pm = new PatientManager();
+        Patient john = pm.registerPatient("John Doe", LocalDate.of(1990, 5, 15), "Male",
+                                          "1234567890", "john@test.com", "123 Main St", "A+", "None");
+        check(john != null, "First registration succeeds");
+
+        Patient again = pm.registerPatient("john doe", LocalDate.of(1990, 5, 15), "Male",
+                                           "5555555555", null, "Elsewhere", null, null);
+        check(again == null, "Same name and date of birth is refused");
+
+        Patient sameContact = pm.registerPatient("Johnny D", LocalDate.of(1991, 1, 1), "Male",
+                                                 "1234567890", "john@test.com", "123 Main St", null, null);
+        check(sameContact == null, "Same phone and email is refused");
+
+        check(pm.findPossibleDuplicates("Jane Doe", LocalDate.of(1992, 2, 2), "1234567890", null).size() == 1,
+              "Shared phone number is reported as a possible duplicate");
+        Patient jane = pm.registerPatient("Jane Doe", LocalDate.of(1992, 2, 2), "Female",
+                                          "1234567890", null, "123 Main St", null, null);
+        check(jane != null, "Possible duplicate can still be registered");
+        check(pm.getPatientCount() == 2, "Refused registrations add no patients");
+    }
+
+    private static void testDuplicateGroupsFollowEdits() {
+        PatientManager pm = new PatientManager();
+        Patient ann = pm.addPatient("Ann Lee", LocalDate.of(1980, 1, 1), "Female",
+                                    "1112223333", "ann@test.com", null, null, null);
+        Patient annCopy = pm.addPatient("ann lee", LocalDate.of(1980, 1, 1), "Female",
+                                        "4445556666", null, null, null, null);
+        Patient bob = pm.addPatient("Bob Ray", LocalDate.of(1970, 3, 3), "Male",
+                                    "1112223333", "ann@test.com", null, null, null);
+        pm.addPatient("Cy Young", LocalDate.of(1960, 6, 6), "Male", "7778889999", null, null, null, null);
+        check(pm.getDuplicateGroups().size() == 2, "Shared name+DOB and shared phone+email each form a group");
+        List<List<Patient>> clusters = pm.findDuplicateClusters();
+        check(clusters.size() == 1 && clusters.get(0).size() == 3, "Linked groups merge into one cluster");
+
+        pm.updatePatient(bob.getId(), null, null, null, "0001112222", null, null, null, null);
+        check(pm.getDuplicateGroups().size() == 1, "Changing the phone leaves the shared phone group");
+        pm.updatePatient(bob.getId(), null, null, null, "1112223333", null, null, null, null);
+        check(pm.getDuplicateGroups().size() == 2, "Restoring the phone rejoins the group");
+
+        pm.deletePatient(annCopy.getId());
+        check(pm.getDuplicateGroups().size() == 1, "Deleting a duplicate drops its group");
+
+        PatientManager staged = pm.stageImport();
+        staged.addPatient("Ann Lee", LocalDate.of(1980, 1, 1), "Female", null, null, null, null, null);
+        check(pm.publishImport(staged), "Staged import publishes");
+        check(pm.getDuplicateGroups().size() == 2, "Published import carries its duplicate groups");
+        check(pm.findDuplicateClusters().get(0).get(0) == ann, "Cluster is ordered by ID");
+    }
+
+    private static void testCascadeDeleteClearsUndo() {
+        PatientManager pm = new PatientManager();
+        DoctorManager dm = new DoctorManager();
+        AppointmentManager am = new AppointmentManager(pm, dm);
+        Patient patient = pm.addPatient("Undo Patient", LocalDate.of(1980, 1, 1), "Female",
+                                        "1112223333", null, "1 Test Rd", null, null);
+        Doctor doctor = dm.addDoctor("Undo Doctor", "General Practice", "4445556666", null,
+                                     Arrays.asList("Monday", "Tuesday", "Wednesday", "Thursday", "Friday"),
+                                     "09:00", "17:00");
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+        Appointment appointment = am.scheduleAppointment(patient, doctor, monday,
+                                                         LocalTime.of(10, 0), LocalTime.of(10, 30), "Checkup");
+        check(appointment != null, "Appointment is scheduled");
+        am.confirmAppointment(appointment.getId());
+        am.deletePatient(patient.getId(), AppointmentManager.CascadeAction.CANCEL);
+        check(appointment.getStatus() == AppointmentStatus.CANCELLED, "Deleting the patient cancels the appointment");
+        check(!am.undoLastAction(), "Nothing is left to undo for the deleted patient");
+        check(appointment.getStatus() == AppointmentStatus.CANCELLED, "Appointment stays cancelled");
+
+        Patient other = pm.addPatient("Undo Other", LocalDate.of(1981, 2, 2), "Male",
+                                      "7778889999", null, "2 Test Rd", null, null);
+        Appointment second = am.scheduleAppointment(other, doctor, monday,
+                                                    LocalTime.of(11, 0), LocalTime.of(11, 30), "Follow-up");
+        am.deleteDoctor(doctor.getId(), AppointmentManager.CascadeAction.ARCHIVE, null);
+        check(!am.undoLastAction(), "Nothing is left to undo for the deleted doctor");
+        check(am.getAppointmentById(second.getId()) == null, "Archived appointment is not restored");
+    }
+
+    private static void testImportKeepsHistoricalAppointments() throws Exception {
+        PatientManager pm = new PatientManager();
+        DoctorManager dm = new DoctorManager();
+        AppointmentManager am = new AppointmentManager(pm, dm);
+        Patient patient = pm.addPatient("Import Patient", LocalDate.of(1975, 3, 3), "Male",
+                                        "2223334444", null, "3 Test Rd", null, null);
+        Doctor doctor = dm.addDoctor("Import Doctor", "Cardiology", "6667778888", null,
+                                     Arrays.asList("Monday", "Tuesday", "Wednesday", "Thursday", "Friday"),
+                                     "09:00", "17:00");
+        LocalDate pastSaturday = LocalDate.now().with(TemporalAdjusters.previous(DayOfWeek.SATURDAY));
+        LocalDate pastMonday = LocalDate.now().with(TemporalAdjusters.previous(DayOfWeek.MONDAY));
+        LocalDate nextSaturday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.SATURDAY));
+
+        File file = File.createTempFile("appointments", ".csv");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            String prefix = "," + patient.getId() + ",Import Patient," + doctor.getId() + ",Import Doctor,Visit,";
+            out.println("ID,Date,Start Time,End Time,Patient ID,Patient Name,Doctor ID,Doctor Name,Reason,Status,Notes");
+            out.println("1," + pastSaturday + ",10:00,10:30" + prefix + "COMPLETED,");
+            out.println("2," + pastMonday + ",07:00,07:30" + prefix + "SCHEDULED,");
+            out.println("3," + pastMonday + ",07:15,07:45" + prefix + "CANCELLED,");
+            out.println("4," + pastMonday + ",07:15,07:45" + prefix + "SCHEDULED,");
+            out.println("5," + nextSaturday + ",10:00,10:30" + prefix + "SCHEDULED,");
+        }
+
+        CsvImporter.ImportResult result = CsvImporter.importAppointments(file.getPath(), am, pm, dm);
+        check(result.successCount == 3, "Past appointments outside working hours are restored");
+        check(result.errorCount == 2, "Overlapping and new off-hours bookings are refused");
+    }
+}
+EOF
+
+# Compile the test
+echo "Compiling test..."
+javac -encoding UTF-8 -cp "bin:lib/*" -d . TestServices.java
+
+# Run the test
+echo "Running service tests..."
+java -cp ".:bin:lib/*" TestServices
+status=$?
+
+# Cleanup
+rm -f TestServices.java TestServices*.class
+exit $status